@@ -0,0 +1,325 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Searches long games backwards: starting from positions where the player to
+ * move has no cards left (end of a game), it builds all positions that lead to
+ * them, one card at a time, following the rules in {@link Player}. Positions at
+ * level n are those from which the game ends after exactly n cards are played;
+ * positions at the start of a game give decks playing n cards.
+ *
+ * Each level is built in parallel and duplicates are removed; if a level grows
+ * larger than a given bound, a random subset of it is kept.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class BackwardSearch {
+
+	private static final String LONGEST_FILE_NAME = "cavacamixa_backward_longest_game.txt";
+
+	/**
+	 * Levels between two reports.
+	 */
+	private static final int REPORT_INTERVAL = 500;
+
+	/**
+	 * A position in a game; since the rules are the same for both players, this
+	 * does not record which player has to move.
+	 */
+	static final class Position {
+
+		// Hand of the player to move, hand of the other player, cards on the table
+		final byte[] mover, other, pile;
+
+		private final int hash;
+
+		Position(byte[] mover, byte[] other, byte[] pile) {
+			this.mover = mover;
+			this.other = other;
+			this.pile = pile;
+			this.hash = (Arrays.hashCode(mover) * 31 + Arrays.hashCode(other)) * 31 + Arrays.hashCode(pile);
+		}
+
+		/**
+		 * @return True if this can be the start of a game: nothing on the table and
+		 *         20 cards per player, both with some penalty cards (otherwise the
+		 *         game is uninteresting and it is not played).
+		 */
+		boolean isStart() {
+			return (pile.length == 0) && (mover.length == 20) && (other.length == 20) && hasPenalty(mover)
+					&& hasPenalty(other);
+		}
+
+		/**
+		 * @return The deck that starts a game in this position.
+		 */
+		Deck toDeck() {
+			int[] cards = new int[40];
+			for (int i = 0; i < 20; ++i) {
+				cards[i] = mover[i];
+				cards[i + 20] = other[i];
+			}
+			return new Deck(cards);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Position))
+				return false;
+			Position p = (Position) o;
+			return (hash == p.hash) && Arrays.equals(mover, p.mover) && Arrays.equals(other, p.other)
+					&& Arrays.equals(pile, p.pile);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return toString(mover) + " - " + toString(other) + " - " + toString(pile);
+		}
+
+		private static String toString(byte[] cards) {
+			StringBuilder sb = new StringBuilder();
+			for (byte c : cards)
+				sb.append(c);
+			return sb.toString();
+		}
+
+		private static boolean hasPenalty(byte[] cards) {
+			for (byte c : cards)
+				if (c != 0)
+					return true;
+			return false;
+		}
+	}
+
+	private final GameRecords records;
+
+	// Used to check starting decks found
+	private final Engine engine = Rules.ITALIAN.compile();
+	private final GameResult result = new GameResult();
+
+	private final int maxFrontier;
+
+	private final long seed;
+
+	/**
+	 *
+	 * @param saveFolder  Folder where to save the longest game found.
+	 * @param maxFrontier Maximum number of positions kept at each level.
+	 * @param seed        Seed for random number generation.
+	 */
+	public BackwardSearch(File saveFolder, int maxFrontier, long seed) {
+		this.records = new GameRecords(saveFolder, LONGEST_FILE_NAME);
+		this.maxFrontier = maxFrontier;
+		this.seed = seed;
+	}
+
+	/**
+	 * Runs the search starting from random end positions.
+	 *
+	 * @param seeds    Number of random end positions to start from.
+	 * @param maxLevel Maximum number of levels to build; use -1 to continue
+	 *                 until no position is left.
+	 * @return The longest game found, or null if no game was found.
+	 * @throws IOException
+	 */
+	public GameStats run(int seeds, int maxLevel) throws IOException {
+		System.out.println("Searching games backwards from " + seeds + " end positions, at most " + maxFrontier
+				+ " positions per level, seed: " + seed + "\n");
+
+		SplittableRandom rnd = new SplittableRandom(seed);
+		Set<Position> frontier = new HashSet<>();
+		while (frontier.size() < seeds)
+			frontier.add(randomEndPosition(rnd));
+
+		Random shuffler = new Random(rnd.nextLong());
+		long starts = 0;
+		int level = 0;
+		for (; !frontier.isEmpty() && ((maxLevel < 0) || (level < maxLevel)); ++level) {
+
+			// Builds next level, removing duplicates
+			Set<Position> next = frontier.parallelStream() //
+					.flatMap(p -> predecessors(p).stream()) //
+					.collect(Collectors.toSet());
+
+			if (next.size() > maxFrontier) {
+				List<Position> l = new ArrayList<>(next);
+				Collections.shuffle(l, shuffler);
+				next = new HashSet<>(l.subList(0, maxFrontier));
+			}
+
+			for (Position p : next) {
+				if (p.isStart()) {
+					++starts;
+					Deck deck = p.toDeck();
+					engine.play(deck, result);
+					if (result.getCardsPlayed() != level + 1)
+						throw new IllegalStateException("Backward search mismatch for deck " + deck + ": "
+								+ result.getCardsPlayed() + " cards played, expected " + (level + 1));
+					if (records.isCandidate(result))
+						records.onFinish(result.toStats(deck));
+				}
+			}
+
+			frontier = next;
+			if (((level + 1) % REPORT_INTERVAL) == 0)
+				System.out.println("Level " + (level + 1) + ": " + frontier.size() + " positions, " + starts
+						+ " starting decks found so far.");
+		}
+
+		System.out.println("Search ended at level " + level + ", " + starts + " starting decks found.");
+		if (!frontier.isEmpty())
+			System.out.println("A position " + level + " cards from the end: " + frontier.iterator().next());
+		System.out.println("Longest game found: " + records.getLongestGame());
+
+		return records.getLongestGame();
+	}
+
+	/**
+	 * @return A random position where the player to move has no cards left.
+	 */
+	static Position randomEndPosition(SplittableRandom rnd) {
+		byte[] cards = new byte[40];
+		for (int i = 28; i < 40; ++i)
+			cards[i] = (byte) ((i - 28) / 4 + 1);
+
+		while (true) {
+			for (int i = cards.length - 1; i > 0; --i) { // Shuffles the deck
+				int j = rnd.nextInt(i + 1);
+				byte t = cards[i];
+				cards[i] = cards[j];
+				cards[j] = t;
+			}
+
+			// Cards on the table must be a hand still being played
+			int len = 1 + rnd.nextInt(39);
+			byte[] pile = Arrays.copyOfRange(cards, 40 - len, 40);
+			if (isOpenPile(pile, pile.length))
+				return new Position(new byte[0], Arrays.copyOf(cards, 40 - len), pile);
+		}
+	}
+
+	/**
+	 * @return All positions which lead to given one after a card is played.
+	 */
+	static List<Position> predecessors(Position s) {
+		List<Position> result = new ArrayList<>(1);
+
+		if (s.pile.length > 0) { // Undoes last card played
+			byte c = s.pile[s.pile.length - 1];
+			byte[] pile = Arrays.copyOf(s.pile, s.pile.length - 1);
+
+			if ((c == 0) && (penalty(pile) > 0)) {
+				// The player to move was responding to a penalty card, and still is
+				result.add(new Position(prepend(c, s.mover, s.mover.length), s.other, pile));
+			} else {
+				// The other player played the card, then the turn passed
+				result.add(new Position(prepend(c, s.other, s.other.length), s.mover, pile));
+			}
+
+		} else { // Hand just won by the player to move; undoes last card of the losing player
+
+			// The player to move added the cards on the table at the end of their hand
+			for (int len = 2; len <= s.mover.length; ++len) {
+				int start = s.mover.length - len;
+				if (!isClosedPile(s.mover, start))
+					continue;
+				byte[] pile = Arrays.copyOfRange(s.mover, start, s.mover.length - 1);
+				result.add(new Position(prepend((byte) 0, s.other, s.other.length), Arrays.copyOf(s.mover, start),
+						pile));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return A new array with card c followed by the first len cards in cards.
+	 */
+	private static byte[] prepend(byte c, byte[] cards, int len) {
+		byte[] result = new byte[len + 1];
+		result[0] = c;
+		System.arraycopy(cards, 0, result, 1, len);
+		return result;
+	}
+
+	/**
+	 * @return Cards the player to move must still play to respond to a penalty
+	 *         card, given cards on the table.
+	 */
+	private static int penalty(byte[] pile) {
+		int zeros = 0;
+		for (int i = pile.length - 1; i >= 0; --i) {
+			if (pile[i] != 0)
+				return pile[i] - zeros;
+			zeros++;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return True if the first len cards of pile can be on the table while a hand
+	 *         is being played (that is, the hand is not over yet).
+	 */
+	private static boolean isOpenPile(byte[] pile, int len) {
+		int penalty = 0;
+		for (int i = 0; i < len; ++i) {
+			if (pile[i] != 0) {
+				penalty = pile[i];
+			} else if ((penalty != 0) && (--penalty == 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return True if the cards in hand, from start to the end, are the cards on
+	 *         the table at the moment a hand is won (the hand is over exactly when
+	 *         last card is played).
+	 */
+	private static boolean isClosedPile(byte[] hand, int start) {
+		int penalty = 0;
+		for (int i = start; i < hand.length; ++i) {
+			if (hand[i] != 0) {
+				penalty = hand[i];
+			} else if ((penalty != 0) && (--penalty == 0)) {
+				return (i == hand.length - 1);
+			}
+		}
+		return false;
+	}
+}
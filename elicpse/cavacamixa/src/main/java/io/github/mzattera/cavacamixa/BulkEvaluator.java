@@ -0,0 +1,151 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays in parallel all decks read from a stream, one per line, writing game
+ * results as CSV. Decks can be in any format accepted by
+ * {@link Deck#Deck(String)}; empty lines and lines starting with '#' are
+ * skipped.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class BulkEvaluator {
+
+	public static final String CSV_HEADER = "deck,uninteresting,cardsPlayed,penaltyCardsPlayed,hands,winningPlayer,infinite";
+
+	/**
+	 * Maximum number of decks queued for each thread; this bounds memory used when
+	 * reading large files.
+	 */
+	private static final int QUEUE_PER_THREAD = 256;
+
+	private final int threads;
+
+	private final boolean ordered;
+
+	// Engine and result slot used by each thread
+	private final ThreadLocal<Engine> engine = ThreadLocal.withInitial(Rules.ITALIAN::compile);
+	private final ThreadLocal<GameResult> result = ThreadLocal.withInitial(GameResult::new);
+
+	/**
+	 * 
+	 * @param threads Number of threads to use for parallel execution. Use -1 to use
+	 *                a thread per processor.
+	 * @param ordered If true, results are written in same order as decks are
+	 *                read, otherwise as soon as each game is over.
+	 */
+	public BulkEvaluator(int threads, boolean ordered) {
+		this.threads = (threads == -1) ? Runtime.getRuntime().availableProcessors() : threads;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Plays all decks in the input.
+	 * 
+	 * @param in  Stream of decks, one per line.
+	 * @param out Stream where results are written.
+	 * @return Number of games played.
+	 * @throws IOException
+	 */
+	public long evaluate(BufferedReader in, PrintStream out) throws IOException {
+		ExecutorService ex = Executors.newFixedThreadPool(threads);
+		CompletionService<String> cs = new ExecutorCompletionService<>(ex);
+		Deque<Future<String>> pending = new ArrayDeque<>(); // Used only if results are ordered
+		int outstanding = 0;
+		int window = threads * QUEUE_PER_THREAD;
+		long games = 0;
+
+		out.println(CSV_HEADER);
+		try {
+			String line;
+			long lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				++lineNumber;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+
+				Deck deck;
+				try {
+					deck = new Deck(line);
+				} catch (IllegalArgumentException e) {
+					System.err.println("Line " + lineNumber + " skipped: " + e.getMessage());
+					continue;
+				}
+
+				if (ordered)
+					pending.add(ex.submit(() -> play(deck)));
+				else
+					cs.submit(() -> play(deck));
+				++games;
+				if (++outstanding >= window) {
+					out.println(next(cs, pending));
+					--outstanding;
+				}
+			}
+
+			for (; outstanding > 0; --outstanding)
+				out.println(next(cs, pending));
+		} finally {
+			ex.shutdownNow();
+		}
+		out.flush();
+
+		return games;
+	}
+
+	/**
+	 * @return Result of next game to output; this is the oldest one if results
+	 *         must be ordered, otherwise the first one completed.
+	 */
+	private String next(CompletionService<String> cs, Deque<Future<String>> pending) throws IOException {
+		try {
+			Future<String> f = ordered ? pending.poll() : cs.take();
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Plays a game with the engine of current thread.
+	 * 
+	 * @return Results of the game, as CSV.
+	 */
+	private String play(Deck deck) {
+		GameResult r = result.get();
+		engine.get().play(deck, r);
+		return deck + "," + (r.isUninteresting() ? 1 : 0) + "," + r.getCardsPlayed() + "," + r.getPenaltyCardsPlayed()
+				+ "," + r.getHands() + "," + r.getWinningPlayer() + "," + (r.isInfinite() ? 1 : 0);
+	}
+}
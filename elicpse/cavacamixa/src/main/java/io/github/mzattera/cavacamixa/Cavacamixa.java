@@ -16,8 +16,17 @@
 
 package io.github.mzattera.cavacamixa;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Main class to start the application from CLI.
@@ -31,58 +40,463 @@ public class Cavacamixa {
 	 */
 	public static final int BATCH_SIZE = 10_000_000;
 
+	/**
+	 * Default number of end positions backward search starts from.
+	 */
+	public static final int BACKWARD_SEEDS = 10_000;
+
+	/**
+	 * Default maximum number of positions kept at each level in backward search.
+	 */
+	public static final int BACKWARD_FRONTIER = 1_000_000;
+
+	/**
+	 * Default number of random decks used to compare engines.
+	 */
+	public static final int HARNESS_SAMPLES = 1_000_000;
+
 	/**
 	 * @param args
 	 */
 	public static void main(String[] args) throws IOException {
 		try {
-			if (args.length < 2) {
-				if ((args.length == 1) && args[0].equals("-h")) {
+			if ((args.length > 0) && args[0].startsWith("-") && !args[0].startsWith("--")) {
+				switch (args[0]) {
+				case "-h":
 					printUsage();
 					System.exit(0);
+					break;
+				case "-p": // Plays one game from a deck description
+					checkArgs(args, 2, 3);
+					playDeck(args[1], (args.length == 3) ? new File(args[2]) : null);
+					break;
+				case "-b": // Plays all decks in a file
+					checkArgs(args, 2, 3);
+					if ((args.length == 3) && !args[2].equals("-u"))
+						usageError();
+					playDecks(args[1], args.length == 2);
+					break;
+				case "-s": // Plays random decks
+					checkArgs(args, 2, 4);
+					new MonteCarloSampler(getSaveFolder(args[1]), (args.length > 2) ? Long.parseLong(args[2]) : -1,
+							(args.length > 3) ? Long.parseLong(args[3]) : System.nanoTime()).run(-1);
+					break;
+				case "-l": // Local search for long games
+					checkArgs(args, 2, 4);
+					List<Deck> seeds = (args.length > 3) ? readDecks(args[3])
+							: Collections.singletonList(new Deck(LocalSearch.DEFAULT_SEED));
+					new LocalSearch(getSaveFolder(args[1]), seeds,
+							(args.length > 2) ? LocalSearch.Strategy.valueOf(args[2].toUpperCase())
+									: LocalSearch.Strategy.ANNEALING).run(-1, System.nanoTime());
+					break;
+				case "-r": // Searches games backwards from their end
+					checkArgs(args, 2, 5);
+					new BackwardSearch(getSaveFolder(args[1]),
+							(args.length > 3) ? Integer.parseInt(args[3]) : BACKWARD_FRONTIER, System.nanoTime()).run(
+									(args.length > 2) ? Integer.parseInt(args[2]) : BACKWARD_SEEDS,
+									(args.length > 4) ? Integer.parseInt(args[4]) : -1);
+					break;
+				case "-g": // Plays one game with given rules
+					checkArgs(args, 3, 3);
+					playDeck(Rules.forName(args[1]), args[2]);
+					break;
+				case "-v": // Plays all decks for given rules; same as --rules
+					checkArgs(args, 3, 3);
+					runExecutor(new String[] { "--rules", args[1], args[2] });
+					break;
+				case "-m": // Plays all decks matching a pattern; same as --pattern (and --rules)
+					checkArgs(args, 3, 4);
+					runExecutor((args.length == 4) ? new String[] { "--pattern", args[1], "--rules", args[3], args[2] }
+							: new String[] { "--pattern", args[1], args[2] });
+					break;
+				case "-c": // Counts decks matching a pattern
+					checkArgs(args, 2, 3);
+					System.out.println(
+							new DeckPattern((args.length == 3) ? Rules.forName(args[2]) : Rules.ITALIAN, args[1])
+									.count());
+					break;
+				case "-d": // Compares engines
+					checkArgs(args, 1, Integer.MAX_VALUE);
+					int first = 1;
+					String engine = Engine.FAST;
+					if ((args.length > 1) && !args[1].matches("[0-9]+"))
+						engine = args[first++];
+					List<File> files = new ArrayList<>();
+					File known = EngineHarness.findKnownGames();
+					if (known != null) {
+						System.out.println("Checking long games known in: " + known.getCanonicalPath());
+						files.add(known);
+					}
+					for (int i = first + 1; i < args.length; ++i)
+						files.add(new File(args[i]));
+					List<Deck> corpus = EngineHarness.buildCorpus(files,
+							(args.length > first) ? Integer.parseInt(args[first]) : HARNESS_SAMPLES, System.nanoTime());
+					int mismatches = new EngineHarness(Player::play, Engine.supplier(engine, Rules.ITALIAN).get())
+							.run(corpus, System.out);
+					System.out.println("\nChecking loop detection with " + EngineHarness.LOOP_VARIANT + " rules:");
+					mismatches += EngineHarness.checkLoops(EngineHarness.LOOP_VARIANT, System.out);
+					if (mismatches > 0)
+						System.exit(1);
+					break;
+				case "-a": // Statistics of games grouped by deck features
+					checkArgs(args, 4, 5);
+					analyze(getSaveFolder(args[1]), args[2], args[3], (args.length == 5) ? args[4] : null);
+					break;
+				case "-e": // Builds the state graph of a range of decks
+					checkArgs(args, 3, 5);
+					exploreGraph(args[1], args[2], (args.length > 3) ? Rules.forName(args[3]) : Rules.ITALIAN,
+							(args.length > 4) ? Integer.parseInt(args[4]) : GraphEngine.MAX_POSITIONS);
+					break;
+				case "-t": // Replays games from a trace file
+					checkArgs(args, 2, 2);
+					replayTrace(new File(args[1]));
+					break;
+				default:
+					usageError();
 				}
+			} else {
+				runExecutor(args);
+			}
+		} catch (Exception e) {
+			e.printStackTrace(System.err);
+			System.exit(-1);
+		}
+	}
 
-				// Makes sure output folder exists and can be written
-				File saveFolder;
-				if (args.length == 0) {
-					saveFolder = new File(".");
-				} else {
-					saveFolder = new File(args[0]);
-				}
-				if (!saveFolder.canWrite() || !saveFolder.isDirectory())
-					throw new IOException("Cannot acccess folder: " + saveFolder.getCanonicalPath());
+	/**
+	 * Plays all decks, or a range of decks, with options given on the command
+	 * line.
+	 */
+	private static void runExecutor(String[] args) throws IOException {
+		String saveFolderName = null, rulesName = null, patternString = null, fromString = null, toString = null,
+				engine = null;
+		int threads = -1;
+		long batchSize = -1, batchSeconds = -1;
+		for (int i = 0; i < args.length; ++i) {
+			if (!args[i].startsWith("--")) {
+				if (saveFolderName != null)
+					usageError();
+				saveFolderName = args[i];
+				continue;
+			}
+			if (i == args.length - 1)
+				usageError();
+			String value = args[++i];
+			switch (args[i - 1]) {
+			case "--rules":
+				rulesName = value;
+				break;
+			case "--pattern":
+				patternString = value;
+				break;
+			case "--from":
+				fromString = value;
+				break;
+			case "--to":
+				toString = value;
+				break;
+			case "--threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "--games":
+				batchSize = Long.parseLong(value);
+				break;
+			case "--seconds":
+				batchSeconds = Long.parseLong(value);
+				break;
+			case "--engine":
+				engine = value;
+				break;
+			default:
+				usageError();
+			}
+		}
+		if ((batchSize < 0) && (batchSeconds < 0))
+			batchSize = BATCH_SIZE;
 
-				System.out.println("Playing games forever. Save folder: " + saveFolder.getCanonicalPath() + "\n");
+		File saveFolder = getSaveFolder((saveFolderName == null) ? "." : saveFolderName);
+		Rules rules = (rulesName == null) ? Rules.ITALIAN : Rules.forName(rulesName);
+		DeckPattern pattern = (patternString == null) ? DeckPattern.any(rules)
+				: new DeckPattern(rules, patternString);
+		long from = (fromString == null) ? 0 : parseRank(pattern, fromString);
+		long to = (toString == null) ? -1 : parseRank(pattern, toString);
 
-				// Runs games forever
-				new ParallelExecutor(saveFolder, BATCH_SIZE).run();
+		// Range is printed once the check point, if any, has been read
+		ParallelExecutor executor = new ParallelExecutor(saveFolder, pattern, from, to,
+				Engine.supplier(engine, rules), threads, batchSize, batchSeconds);
+		String what = ((rulesName == null) ? "" : " with " + rules + " rules")
+				+ ((patternString == null) ? "" : " matching pattern " + pattern);
+		if ((toString == null) && (executor.getFrom() == 0))
+			System.out.println("Playing games" + what + " forever. Save folder: " + saveFolder.getCanonicalPath()
+					+ "\n");
+		else
+			System.out.println("Playing decks" + what + " from rank " + executor.getFrom() + " to "
+					+ ((toString == null) ? "end" : executor.getTo()) + ". Save folder: "
+					+ saveFolder.getCanonicalPath() + "\n");
+		executor.run();
+	}
 
-			} else if (args.length == 2) {
-				if (args[0].equals("-p")) { // Plays one game from a deck description
+	/**
+	 * @return The rank of a deck, in the sequence of decks matching given pattern;
+	 *         the deck can be provided directly or by its rank.
+	 */
+	private static long parseRank(DeckPattern pattern, String s) {
+		if (s.replace("-", "").length() == pattern.getRules().getDeckSize())
+			return pattern.rank(new Deck(pattern.getRules(), s));
+		return Long.parseLong(s);
+	}
 
-					System.out.println("\nPlaying game using deck: " + args[1] + "\n");
-					GameStats stats = Player.play(new Deck(args[1]), System.out);
-					System.out.println("\nGame results: " + stats);
-					if (stats.isInfinite())
-						System.out.println("*** THIS IS AN INFINITE GAME ***");
-				}
-			} else {
-				printUsage();
-				System.exit(-1);
+	/**
+	 * Makes sure output folder exists and can be written.
+	 */
+	private static File getSaveFolder(String name) throws IOException {
+		File saveFolder = new File(name);
+		if (!saveFolder.canWrite() || !saveFolder.isDirectory())
+			throw new IOException("Cannot acccess folder: " + saveFolder.getCanonicalPath());
+		return saveFolder;
+	}
+
+	/**
+	 * Prints usage and exits if number of arguments is not in given range.
+	 */
+	private static void checkArgs(String[] args, int min, int max) {
+		if ((args.length < min) || (args.length > max))
+			usageError();
+	}
+
+	/**
+	 * Prints usage and exits.
+	 */
+	private static void usageError() {
+		printUsage();
+		System.exit(-1);
+	}
+
+	/**
+	 * Plays one game, printing all moves or saving them in a trace file.
+	 * 
+	 * @param deck      Deck to use.
+	 * @param traceFile If not null, moves are saved in this trace file instead of
+	 *                  being printed.
+	 */
+	private static void playDeck(String deck, File traceFile) throws IOException {
+		System.out.println("\nPlaying game using deck: " + deck + "\n");
+		GameStats stats;
+		if (traceFile == null) {
+			stats = Player.play(new Deck(deck), new GamePrinter(System.out));
+		} else {
+			try (GameTraceWriter trace = new GameTraceWriter(traceFile)) {
+				stats = Player.play(new Deck(deck), trace);
 			}
-		} catch (Exception e) {
-			e.printStackTrace(System.err);
-			System.exit(-1);
+			System.out.println("Trace saved in: " + traceFile.getCanonicalPath());
+		}
+		printResults(stats);
+	}
+
+	/**
+	 * Plays one game with given rules, printing its results.
+	 * 
+	 * @param rules Rules for the game.
+	 * @param deck  Deck to use.
+	 */
+	private static void playDeck(Rules rules, String deck) {
+		System.out.println("\nPlaying game with " + rules + " rules using deck: " + deck);
+		printResults(rules.compile().play(new Deck(rules, deck)));
+	}
+
+	/**
+	 * Plays in parallel all decks listed in a file, printing results as CSV.
+	 * 
+	 * @param fileName Name of the file with decks, "-" to read from standard
+	 *                 input.
+	 * @param ordered  If true, results are printed in same order as decks in the
+	 *                 file, otherwise as soon as they are available.
+	 */
+	private static void playDecks(String fileName, boolean ordered) throws IOException {
+		long start = System.currentTimeMillis();
+		long games;
+		try (BufferedReader in = fileName.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			games = new BulkEvaluator(-1, ordered).evaluate(in, System.out);
+		}
+		System.err.println("Played " + games + " games in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Plays a random sample or a range of decks, computing statistics of games
+	 * grouped by given features.
+	 * 
+	 * @param saveFolder Folder where to save results.
+	 * @param features   Features to group games, separated by commas.
+	 * @param from       Number of random decks to play if to is null, otherwise
+	 *                   rank of first deck to play.
+	 * @param to         Rank of the deck after last one to play, or null to play
+	 *                   random decks.
+	 */
+	private static void analyze(File saveFolder, String features, String from, String to) throws IOException {
+		List<DeckAnalytics.Feature> f = new ArrayList<>();
+		for (String name : features.split(","))
+			f.add(DeckAnalytics.Feature.forName(name, Rules.ITALIAN));
+		DeckAnalytics analytics = new DeckAnalytics(Rules.ITALIAN, f, Engine.supplier(null, Rules.ITALIAN));
+		DeckPattern all = DeckPattern.any(Rules.ITALIAN);
+
+		long start = System.currentTimeMillis();
+		Map<Long, DeckAnalytics.Aggregate> results;
+		if (to == null) {
+			long seed = System.nanoTime();
+			System.out.println("Analyzing " + from + " random decks, seed: " + seed + "\n");
+			results = analytics.analyze(all, Long.parseLong(from), seed);
+		} else {
+			DeckSpace space = DeckSpace.range(all, parseRank(all, from), parseRank(all, to));
+			System.out.println(
+					"Analyzing decks from rank " + space.getFrom() + " to " + space.getTo() + "\n");
+			results = analytics.analyze(space);
 		}
+		analytics.print(results, System.out);
+		analytics.save(results, saveFolder);
+		System.out.println("\nResults saved in " + new File(saveFolder, DeckAnalytics.RESULTS_FILE_NAME).getCanonicalPath()
+				+ " (" + (System.currentTimeMillis() - start) + " ms).");
+	}
+
+	/**
+	 * Plays a range of decks building their state graph, printing results of
+	 * queries on the graph.
+	 * 
+	 * @param from         Rank of first deck to play, or the deck itself.
+	 * @param to           Rank of the deck after last one to play, or the deck
+	 *                     itself.
+	 * @param rules        Rules for the games.
+	 * @param maxPositions Maximum number of positions in the graph.
+	 */
+	private static void exploreGraph(String from, String to, Rules rules, int maxPositions) {
+		DeckPattern all = DeckPattern.any(rules);
+		DeckSpace space = DeckSpace.range(all, parseRank(all, from), parseRank(all, to));
+		System.out.println("Building state graph for decks from rank " + space.getFrom() + " to " + space.getTo()
+				+ " with " + rules + " rules\n");
+		long start = System.currentTimeMillis();
+		StateGraphSearch search = new StateGraphSearch(rules, maxPositions);
+		search.run(space);
+		search.print(System.out);
+		System.out.println("\nTime taken: " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	/**
+	 * Reads decks from a file, one per line; empty lines and lines starting with
+	 * '#' are skipped.
+	 */
+	private static List<Deck> readDecks(String fileName) throws IOException {
+		List<Deck> result = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#"))
+				result.add(new Deck(line));
+		}
+		return result;
+	}
+
+	/**
+	 * Replays all games in a trace file, printing their moves.
+	 */
+	private static void replayTrace(File traceFile) throws IOException {
+		try (GameTraceReader trace = new GameTraceReader(traceFile)) {
+			GameStats stats;
+			while ((stats = trace.replay(new GamePrinter(System.out))) != null)
+				printResults(stats);
+		}
+	}
+
+	private static void printResults(GameStats stats) {
+		System.out.println("\nGame results: " + stats);
+		if (stats.isInfinite())
+			System.out.println("*** THIS IS AN INFINITE GAME ***");
 	}
 
 	private static void printUsage() {
-		System.out.println("java -jar <JAR file name> <saveFolder>");
+		System.out.println("java -jar <JAR file name> [<options>] <saveFolder>");
 		System.out.println("\tPlays games forever saving longest game and recovery point in <saveFolder>.");
 		System.out.println("\tIf <saveFolder> contains a recovery point, it starts playing from there.");
-		System.out.println("\t<saveFolder> must exists and be writable.\n");
-		System.out.println("java -jar <JAR file name> -p <deck>");
-		System.out.println("\tPlays a game using <deck> which is a string of 40 numbers 0-3 representing a deck.\n");
+		System.out.println("\t<saveFolder> must exists and be writable. Options are:");
+		System.out.println("\t--from <rank|deck>  plays decks starting from given deck or rank (default: first deck)");
+		System.out.println("\t--to <rank|deck>    stops before given deck or rank and prints a summary (default: last deck)");
+		System.out.println("\t--threads <n>       number of threads (default: one per processor)");
+		System.out.println("\t--games <n>         saves recovery point every <n> games (default: " + BATCH_SIZE + ")");
+		System.out.println("\t--seconds <n>       saves recovery point every <n> seconds");
+		System.out.println("\t--engine <name>     \"" + Engine.REFERENCE + "\" (Italian rules only), \""
+				+ Engine.FAST + "\" (default) or \"" + Engine.GRAPH + "\"");
+		System.out.println("\t                    (which remembers positions already seen, for two players; see -e)");
+		System.out.println("\t--rules <rules>     rules for the games (see -g, default: Italian)");
+		System.out.println("\t--pattern <pattern> plays only decks matching <pattern> (see -m);");
+		System.out.println("\t                    ranks are then positions in the sequence of matching decks.\n");
+		System.out.println("java -jar <JAR file name> -s <saveFolder> [<games> [<seed>]]");
+		System.out.println("\tPlays <games> uniformly random decks (forever if omitted), reporting the distribution");
+		System.out.println("\tof game lengths and saving longest game, infinite games and a histogram of game lengths");
+		System.out.println("\tin <saveFolder>. <seed> can be provided to repeat a run.\n");
+		System.out.println("java -jar <JAR file name> -l <saveFolder> [annealing|tabu [<seedFile>]]");
+		System.out.println("\tSearches forever for long games by changing decks a little at a time, starting from decks");
+		System.out.println("\tin <seedFile> (one per line) or from the longest game known; uses simulated annealing");
+		System.out.println("\t(default) or tabu search. Longest game and infinite games are saved in <saveFolder>.\n");
+		System.out.println("java -jar <JAR file name> -r <saveFolder> [<seeds> [<maxPositions> [<maxLevels>]]]");
+		System.out.println("\tSearches games backwards, starting from <seeds> random end positions (default "
+				+ BACKWARD_SEEDS + ")");
+		System.out.println("\tand building positions one card further from the end at each level, keeping at most");
+		System.out.println("\t<maxPositions> (default " + BACKWARD_FRONTIER
+				+ ") per level, for at most <maxLevels> levels (no limit if omitted).");
+		System.out.println("\tLongest game found is saved in <saveFolder>.\n");
+		System.out.println("java -jar <JAR file name> -p <deck> [<traceFile>]");
+		System.out.println("\tPlays a game using <deck> which is a string of 40 numbers 0-3 representing a deck");
+		System.out.println("\t(a dash can separate the 20 cards of each player).");
+		System.out.println("\tIf <traceFile> is provided, moves are saved in it instead of being printed;");
+		System.out.println("\tthe trace is in CSV format if <traceFile> ends with \".csv\", in binary format otherwise.\n");
+		System.out.println("java -jar <JAR file name> -b <deckFile> [-u]");
+		System.out.println("\tPlays in parallel all decks in <deckFile> (one per line, \"-\" to read standard input),");
+		System.out.println("\tprinting results as CSV in same order as decks in the file;");
+		System.out.println("\twith -u results are printed as soon as they are available.");
+		System.out.println("\tDecks can be strings of 40 numbers 0-3 or two strings of 20 numbers separated by a dash;");
+		System.out.println("\tlines that are not valid decks (e.g. without 4 cards for each penalty value) are reported");
+		System.out.println("\ton standard error and skipped.\n");
+		System.out.println("java -jar <JAR file name> -g <rules> <deck>");
+		System.out.println("\tPlays a game with given <rules> using <deck>, printing its results. <rules> can be");
+		System.out.println("\t\"italian\" or \"bmn\" (beggar-my-neighbour, with J, Q, K, A as penalty cards 1-4), or");
+		System.out.println("\tthe number of cards for each penalty value, starting from normal cards (e.g. \"28,4,4,4\"),");
+		System.out.println("\toptionally followed by \"/\" and the number of players (e.g. \"bmn/3\").\n");
+		System.out.println("java -jar <JAR file name> -v <rules> <saveFolder>");
+		System.out.println("\tSame as running with --rules <rules> <saveFolder>.\n");
+		System.out.println("java -jar <JAR file name> -m <pattern> <saveFolder> [<rules>]");
+		System.out.println("\tSame as running with --pattern <pattern> [--rules <rules>] <saveFolder>: plays only decks");
+		System.out.println("\tmatching <pattern> (with Italian rules, unless <rules> are provided). <pattern> has a");
+		System.out.println("\tcharacter for each card:");
+		System.out.println("\t'?' matches any card, '*' any penalty card, a digit only cards with that value;");
+		System.out.println("\tdashes are ignored (e.g. \"0000????????????????-0001????????????????\"). When dashes split");
+		System.out.println("\t<pattern> in one part per player, each part can be shorter than the hand and is padded");
+		System.out.println("\twith '?' (e.g. \"0000-0001\" or \"0000????-0001????\" are the same as the pattern above).\n");
+		System.out.println("java -jar <JAR file name> -c <pattern> [<rules>]");
+		System.out.println("\tPrints the number of decks matching <pattern>.\n");
+		System.out.println("java -jar <JAR file name> -d [<engine>] [<samples> [<file> ...]]");
+		System.out.println("\tPlays the longest game known, all games in " + EngineHarness.KNOWN_GAMES_FILE_NAME
+				+ " (looked for in current folder and its parents),");
+		System.out.println("\tall decks found in each <file> (e.g. console logs or saved");
+		System.out.println("\tinfinite games) and <samples> random decks (default " + HARNESS_SAMPLES
+				+ ") with both the reference");
+		System.out.println("\tand the fast engine (or <engine>, see --engine), reporting any difference in results and");
+		System.out.println("\tthe speed of each engine. Since no infinite game is known for Italian rules, loop detection");
+		System.out.println("\tis then checked on all decks of a small variant (" + EngineHarness.LOOP_VARIANT
+				+ "), comparing the fast engines for two and for any number of players.");
+		System.out.println("\tExits with status 1 if results differ.\n");
+		System.out.println("java -jar <JAR file name> -a <saveFolder> <features> <games>|<from> <to>");
+		System.out.println("\tPlays <games> random decks, or decks from <from> to <to> (ranks or decks), and saves in");
+		System.out.println("\t<saveFolder> count, mean, max and histogram of game lengths for games grouped by <features>.");
+		System.out.println("\t<features> is a comma separated list of: first<p> (position of first penalty card in hand");
+		System.out.println("\tof player <p>), penalties<p> (number of penalty cards in hand), points<p> (sum of penalty");
+		System.out.println("\tvalues in hand), prefix<p>:<n> (first <n> cards in hand); e.g. \"first0,first1\".\n");
+		System.out.println("java -jar <JAR file name> -e <from> <to> [<rules> [<maxPositions>]]");
+		System.out.println("\tPlays decks from <from> to <to> (ranks or decks) in a single graph of the positions reached");
+		System.out.println("\tat the start of each game and each time a hand is won, where each position is solved once");
+		System.out.println("\tfor all decks reaching it. Prints the longest game in the range, positions in loops and the");
+		System.out.println("\tlongest game from any position in the graph, which is cleared when it grows beyond");
+		System.out.println("\t<maxPositions> (default " + GraphEngine.MAX_POSITIONS + "). Rules must be for two players.\n");
+		System.out.println("java -jar <JAR file name> -t <traceFile>");
+		System.out.println("\tReplays and prints games saved in <traceFile>.\n");
 		System.out.println("java -jar <JAR file name> -h");
 		System.out.println("\tPrints this help message.\n");
 	}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the loop of an infinite game. Positions are taken each time a hand
+ * is won, seen from the player who has to move (whose hand comes first); a
+ * position is written as the cards in each player's hand, separated by dashes.
+ *
+ * The positions in the loop are listed starting from the smallest one (in
+ * lexicographic order), so games ending in the same loop have the same
+ * positions, regardless of where they entered the loop.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class CycleInfo {
+
+	private final int startHand, startCard, periodHands, periodCards, periodPenaltyCards;
+
+	private final List<String> positions;
+
+	/**
+	 *
+	 * @param startHand          Hands won before the loop starts.
+	 * @param startCard          Cards played before the loop starts.
+	 * @param periodHands        Hands won in one loop.
+	 * @param periodCards        Cards played in one loop.
+	 * @param periodPenaltyCards Penalty cards played in one loop.
+	 * @param positions          Positions in the loop, starting from the one at
+	 *                           startHand.
+	 */
+	public CycleInfo(int startHand, int startCard, int periodHands, int periodCards, int periodPenaltyCards,
+			List<String> positions) {
+		if (positions.size() != periodHands)
+			throw new IllegalArgumentException("There must be a position for each hand in the loop.");
+		this.startHand = startHand;
+		this.startCard = startCard;
+		this.periodHands = periodHands;
+		this.periodCards = periodCards;
+		this.periodPenaltyCards = periodPenaltyCards;
+
+		int min = 0;
+		for (int i = 1; i < positions.size(); ++i)
+			if (positions.get(i).compareTo(positions.get(min)) < 0)
+				min = i;
+		List<String> p = new ArrayList<>(positions.subList(min, positions.size()));
+		p.addAll(positions.subList(0, min));
+		this.positions = Collections.unmodifiableList(p);
+	}
+
+	/**
+	 * @return Number of hands won before the loop starts.
+	 */
+	public int getStartHand() {
+		return startHand;
+	}
+
+	/**
+	 * @return Number of cards played before the loop starts.
+	 */
+	public int getStartCard() {
+		return startCard;
+	}
+
+	/**
+	 * @return Number of hands won in one loop.
+	 */
+	public int getPeriodHands() {
+		return periodHands;
+	}
+
+	/**
+	 * @return Number of cards played in one loop.
+	 */
+	public int getPeriodCards() {
+		return periodCards;
+	}
+
+	/**
+	 * @return Number of penalty cards played in one loop.
+	 */
+	public int getPeriodPenaltyCards() {
+		return periodPenaltyCards;
+	}
+
+	/**
+	 * @return Positions in the loop, starting from the smallest one.
+	 */
+	public List<String> getPositions() {
+		return positions;
+	}
+
+	/**
+	 * @return Smallest position in the loop; this identifies the loop.
+	 */
+	public String getKey() {
+		return positions.get(0);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CycleInfo))
+			return false;
+		CycleInfo other = (CycleInfo) obj;
+		return (startHand == other.startHand) && (startCard == other.startCard)
+				&& (periodHands == other.periodHands) && (periodCards == other.periodCards)
+				&& (periodPenaltyCards == other.periodPenaltyCards) && positions.equals(other.positions);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((startHand * 31 + startCard) * 31 + periodCards) * 31 + positions.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "CycleInfo [StartHand=" + startHand + ", StartCard=" + startCard + ", PeriodHands=" + periodHands
+				+ ", PeriodCards=" + periodCards + ", PeriodPenaltyCards=" + periodPenaltyCards + ", Positions="
+				+ positions + "]";
+	}
+}
@@ -28,16 +28,30 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * A 40 cards deck (already shuffled).
+ * A deck (already shuffled); unless otherwise stated, a 40 cards deck for
+ * Italian rules.
  */
 public class Deck {
 
-	int[] cards = new int[40];
+	/**
+	 * Number of distinct decks (all permutations of 28 nulls and 4 cards for each
+	 * of the values 1-3).
+	 */
+	public static final long TOTAL_DECKS = multinomial(new int[] { 28, 4, 4, 4 });
+
+	/**
+	 * Number of "uninteresting" decks, where one of the players has no penalty
+	 * cards.
+	 */
+	public static final long UNINTERESTING_DECKS = 2 * multinomial(new int[] { 8, 4, 4, 4 });
+
+	final int[] cards;
 
 	/**
 	 * Creates the "initial" deck.
 	 */
 	public Deck() {
+		cards = new int[40];
 		int index = 0;
 		for (int i = 0; i < 28; i++)
 			cards[index++] = 0;
@@ -50,37 +64,60 @@ public class Deck {
 	}
 
 	/**
-	 * Constructor from String representation.
+	 * Constructor from String representation; this is either a string of 40
+	 * numbers 0-3, or two strings of 20 numbers, one for each player's hand,
+	 * separated by a dash.
 	 * 
 	 * @param deck
+	 * @throws IllegalArgumentException If the string is not a valid deck,
+	 *                                  including when it does not have 4 cards
+	 *                                  for each penalty value.
 	 */
 	public Deck(String deck) {
-		deck = deck.trim();
-		if (deck.length() != cards.length)
+		this(Rules.ITALIAN, deck);
+	}
+
+	/**
+	 * Constructor from String representation; this is a string of numbers, one
+	 * for each card in the deck, possibly with dashes separating players' hands.
+	 * 
+	 * @param rules Rules for the game the deck is used for.
+	 * @param deck
+	 * @throws IllegalArgumentException If the string is not a valid deck for
+	 *                                  given rules, including when it has not
+	 *                                  the number of cards of each value the
+	 *                                  rules require.
+	 */
+	public Deck(Rules rules, String deck) {
+		String d = deck.trim().replace("-", "");
+		if (d.length() != rules.getDeckSize())
 			throw new IllegalArgumentException("Invalid deck configuration: " + deck);
-		for (int i = 0; i < cards.length; ++i)
-			cards[i] = deck.charAt(i) - '0';
+		cards = new int[d.length()];
+		for (int i = 0; i < cards.length; ++i) {
+			cards[i] = d.charAt(i) - '0';
+			if ((cards[i] < 0) || (cards[i] > rules.getMaxPenalty()))
+				throw new IllegalArgumentException("Invalid deck configuration: " + deck);
+		}
+		if (!rules.accepts(this))
+			throw new IllegalArgumentException("Invalid deck configuration (wrong card counts): " + deck);
 	}
 
 	/**
-	 * Copy constructor.
+	 * Constructor from an array of cards.
 	 * 
-	 * @param other
+	 * @param cards
 	 */
-	public Deck(Deck other) {
-		System.arraycopy(other.cards, 0, cards, 0, 40);
+	public Deck(int[] cards) {
+		this.cards = cards.clone();
 	}
 
 	/**
-	 * Legacy.
+	 * Copy constructor.
 	 * 
 	 * @param other
 	 */
-	// TODO REMOVE
-	protected Deck(List<Integer> deck) {
-		for (int i = 0; i < deck.size(); i++) {
-		    cards[i] = deck.get(i);
-		}
+	public Deck(Deck other) {
+		cards = other.cards.clone();
 	}
 
 	/**
@@ -88,25 +125,37 @@ public class Deck {
 	 *         if this is already last deck.
 	 */
 	public Deck next() {
-
 		Deck result = new Deck(this);
+		return result.advance() ? result : null;
+	}
+
+	/**
+	 * Turns this deck into the next one in the sequence of all possible deck
+	 * combinations, without allocating a new deck; this must be used only for
+	 * decks not shared with others.
+	 * 
+	 * @return False if this is already last deck, which is left unchanged.
+	 */
+	boolean advance() {
+
+		int last = cards.length - 1;
 
 		// Finds biggest i such that deck[i] < deck[i + 1]
-		int i = 38;
-		while (i >= 0 && (result.cards[i] >= result.cards[i + 1]))
+		int i = last - 1;
+		while (i >= 0 && (cards[i] >= cards[i + 1]))
 			i--;
 		if (i < 0)
-			return null;
+			return false;
 
 		// Finds biggest j such that j > i and deck[j] > deck[i]
-		int j = 39;
-		while (result.cards[j] <= result.cards[i])
+		int j = last;
+		while (cards[j] <= cards[i])
 			j--;
 
-		swap(result.cards, i, j);
-		reverse(result.cards, i + 1, 39);
+		swap(cards, i, j);
+		reverse(cards, i + 1, last);
 
-		return result;
+		return true;
 	}
 
 	private static void swap(int[] deck, int i, int j) {
@@ -121,6 +170,94 @@ public class Deck {
 		}
 	}
 
+	/**
+	 * 
+	 * @return Position of this deck in the sequence of all possible deck
+	 *         combinations (0 for the initial deck).
+	 */
+	public long rank() {
+		int max = 0;
+		for (int c : cards)
+			max = Math.max(max, c);
+		int[] counts = new int[max + 1];
+		for (int c : cards)
+			counts[c]++;
+
+		long rank = 0;
+		long m = multinomial(counts); // Permutations of the cards not yet ranked
+		for (int i = 0, n = cards.length; i < cards.length; ++i, --n) {
+			int c = cards[i];
+			for (int v = 0; v < c; ++v) // Skips all permutations starting with a smaller card
+				rank += m * counts[v] / n;
+			m = m * counts[c] / n;
+			counts[c]--;
+		}
+		return rank;
+	}
+
+	/**
+	 * 
+	 * @param rank Position of a deck in the sequence of all possible deck
+	 *             combinations.
+	 * @return The deck at given position in the sequence of all possible deck
+	 *         combinations.
+	 */
+	public static Deck unrank(long rank) {
+		return unrank(Rules.ITALIAN, rank);
+	}
+
+	/**
+	 * 
+	 * @param rules Rules for the game the deck is used for.
+	 * @param rank  Position of a deck in the sequence of all possible deck
+	 *              combinations.
+	 * @return The deck at given position in the sequence of all possible deck
+	 *         combinations.
+	 */
+	public static Deck unrank(Rules rules, long rank) {
+		long m = rules.getTotalDecks();
+		if ((rank < 0) || (rank >= m))
+			throw new IllegalArgumentException("Invalid rank: " + rank);
+
+		int[] counts = new int[rules.getMaxPenalty() + 1];
+		for (int v = 0; v < counts.length; ++v)
+			counts[v] = rules.getCount(v);
+
+		int[] cards = new int[rules.getDeckSize()];
+		for (int i = 0, n = cards.length; i < cards.length; ++i, --n) {
+			int c = 0;
+			while (true) {
+				long k = m * counts[c] / n; // Permutations starting with c
+				if (rank < k) {
+					m = k;
+					break;
+				}
+				rank -= k;
+				c++;
+			}
+			cards[i] = c;
+			counts[c]--;
+		}
+		return new Deck(cards);
+	}
+
+	/**
+	 * @return Number of distinct permutations of a multiset where each element i
+	 *         is repeated counts[i] times.
+	 */
+	static long multinomial(int[] counts) {
+		long result = 1;
+		int n = 0;
+		for (int c : counts) {
+			n += c;
+			long binomial = 1; // n! / (c! * (n-c)!)
+			for (int k = 1; k <= c; ++k)
+				binomial = Math.multiplyExact(binomial, n - c + k) / k;
+			result = Math.multiplyExact(result, binomial);
+		}
+		return result;
+	}
+
 	/**
 	 * 
 	 * @return This deck as a list of integers.
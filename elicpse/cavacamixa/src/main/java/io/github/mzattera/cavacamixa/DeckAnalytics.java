@@ -0,0 +1,472 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import io.github.mzattera.util.FileUtil;
+
+/**
+ * Plays a range or a random sample of decks and computes statistics of game
+ * lengths, grouped by some features of the decks (e.g. position of the first
+ * penalty card in each player's hand). Games are played in parallel and their
+ * results reduced as they are played, so memory used does not depend on the
+ * number of games.
+ *
+ * Uninteresting games are not counted; infinite games are counted apart.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class DeckAnalytics {
+
+	public static final String RESULTS_FILE_NAME = "cavacamixa_analytics.csv";
+
+	/**
+	 * Width of bins in the histograms of game lengths, in cards played.
+	 */
+	private static final int BIN_WIDTH = 100;
+
+	/**
+	 * Number of bins in histograms; longer games are counted in the last bin.
+	 */
+	private static final int BINS = 50;
+
+	/**
+	 * Groups printed on the console.
+	 */
+	private static final int MAX_PRINTED = 20;
+
+	/**
+	 * Groups are ranked on the console by this lower bound for the average game
+	 * length (mean minus Z standard errors, about 97.5% one-sided confidence), so
+	 * small groups do not rank first just by chance.
+	 */
+	private static final double Z = 1.96;
+
+	/**
+	 * Groups with less non-infinite games than this are not printed on the
+	 * console, as their standard deviation is not a reliable estimate.
+	 */
+	private static final int MIN_GAMES = 30;
+
+	/**
+	 * A feature of a deck, used to group games.
+	 */
+	public static final class Feature {
+
+		private final String name;
+
+		// Values are in [0, cardinality)
+		private final int cardinality;
+
+		private final ToIntFunction<Deck> function;
+
+		// For prefixes, number of cards in the prefix; 0 otherwise
+		private final int cards;
+
+		private Feature(String name, int cardinality, ToIntFunction<Deck> function) {
+			this(name, cardinality, function, 0);
+		}
+
+		private Feature(String name, int cardinality, ToIntFunction<Deck> function, int cards) {
+			this.name = name;
+			this.cardinality = cardinality;
+			this.function = function;
+			this.cards = cards;
+		}
+
+		/**
+		 * Returns a feature given its name. Names are made of a feature type followed
+		 * by the player whose hand is considered (e.g. "first0"). Types are:
+		 * <ul>
+		 * <li>"first": position of the first penalty card in the hand (hand size if
+		 * there are no penalty cards);</li>
+		 * <li>"penalties": number of penalty cards in the hand;</li>
+		 * <li>"points": sum of penalty values of the cards in the hand;</li>
+		 * <li>"prefix": first cards in the hand, as a number; the number of cards
+		 * follows a colon (e.g. "prefix1:3").</li>
+		 * </ul>
+		 *
+		 * @param name
+		 * @param rules Rules for the game the decks are used for.
+		 * @return The feature with given name.
+		 */
+		public static Feature forName(String name, Rules rules) {
+			String n = name.trim().toLowerCase();
+			int len = 0;
+			int colon = n.indexOf(':');
+			if (colon >= 0) {
+				len = Integer.parseInt(n.substring(colon + 1));
+				n = n.substring(0, colon);
+			}
+			int i = n.length();
+			while ((i > 0) && Character.isDigit(n.charAt(i - 1)))
+				--i;
+			if ((i == n.length()) || ((colon >= 0) != n.startsWith("prefix")))
+				throw new IllegalArgumentException("Invalid feature: " + name);
+			int player = Integer.parseInt(n.substring(i));
+			if (player >= rules.getPlayers())
+				throw new IllegalArgumentException("Invalid feature: " + name);
+
+			int start = rules.getHandStart(player);
+			int size = rules.getHandSize(player);
+			int values = rules.getMaxPenalty() + 1;
+			switch (n.substring(0, i)) {
+			case "first":
+				return new Feature(name, size + 1, d -> {
+					for (int j = 0; j < size; ++j)
+						if (d.cards[start + j] != 0)
+							return j;
+					return size;
+				});
+			case "penalties":
+				return new Feature(name, size + 1, d -> {
+					int c = 0;
+					for (int j = 0; j < size; ++j)
+						if (d.cards[start + j] != 0)
+							c++;
+					return c;
+				});
+			case "points":
+				return new Feature(name, size * rules.getMaxPenalty() + 1, d -> {
+					int c = 0;
+					for (int j = 0; j < size; ++j)
+						c += d.cards[start + j];
+					return c;
+				});
+			case "prefix":
+				if ((len < 1) || (len > size) || (Math.pow(values, len) > Integer.MAX_VALUE))
+					throw new IllegalArgumentException("Invalid feature: " + name);
+				final int l = len;
+				return new Feature(name, (int) Math.pow(values, len), d -> {
+					int c = 0;
+					for (int j = 0; j < l; ++j)
+						c = c * values + d.cards[start + j];
+					return c;
+				}, len);
+			default:
+				throw new IllegalArgumentException("Invalid feature: " + name);
+			}
+		}
+
+		/**
+		 * @return Name of this feature.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The value of this feature for given deck.
+		 */
+		public int valueOf(Deck deck) {
+			return function.applyAsInt(deck);
+		}
+
+		/**
+		 * Formats a value of this feature; prefixes are printed as cards.
+		 */
+		private String format(int value, Rules rules) {
+			if (cards == 0)
+				return Integer.toString(value);
+			char[] c = new char[cards];
+			for (int i = cards - 1; i >= 0; --i) {
+				c[i] = (char) ('0' + value % (rules.getMaxPenalty() + 1));
+				value /= rules.getMaxPenalty() + 1;
+			}
+			return new String(c);
+		}
+	}
+
+	/**
+	 * Statistics for a group of games.
+	 */
+	public static final class Aggregate {
+
+		private long games = 0, infinite = 0, cards = 0;
+
+		// Sum of squares of game lengths, for the standard deviation
+		private double squares = 0;
+
+		private int maxCards = -1;
+
+		private Deck longest = null;
+
+		private final long[] histogram = new long[BINS];
+
+		private void add(Deck deck, GameResult result) {
+			if (result.isInfinite()) {
+				infinite++;
+				return;
+			}
+			int c = result.getCardsPlayed();
+			games++;
+			cards += c;
+			squares += (double) c * c;
+			if (c > maxCards) {
+				maxCards = c;
+				longest = deck;
+			}
+			histogram[Math.min(c / BIN_WIDTH, BINS - 1)]++;
+		}
+
+		private void add(Aggregate other) {
+			games += other.games;
+			infinite += other.infinite;
+			cards += other.cards;
+			squares += other.squares;
+			if (other.maxCards > maxCards) {
+				maxCards = other.maxCards;
+				longest = other.longest;
+			}
+			for (int i = 0; i < BINS; ++i)
+				histogram[i] += other.histogram[i];
+		}
+
+		/**
+		 * @return Number of non-infinite games.
+		 */
+		public long getGames() {
+			return games;
+		}
+
+		/**
+		 * @return Number of infinite games.
+		 */
+		public long getInfinite() {
+			return infinite;
+		}
+
+		/**
+		 * @return Average number of cards played in non-infinite games.
+		 */
+		public double getMean() {
+			return (games == 0) ? 0 : (double) cards / games;
+		}
+
+		/**
+		 * @return Sample standard deviation of the number of cards played in
+		 *         non-infinite games, 0 if there are less than two such games.
+		 */
+		public double getStandardDeviation() {
+			if (games < 2)
+				return 0;
+			double mean = getMean();
+			return Math.sqrt(Math.max(0, (squares - mean * mean * games) / (games - 1)));
+		}
+
+		/**
+		 * @return Lower confidence bound for the average number of cards played in
+		 *         non-infinite games.
+		 */
+		private double getLowerBound() {
+			return getMean() - Z * getStandardDeviation() / Math.sqrt(games);
+		}
+
+		/**
+		 * @return Number of cards played in the longest non-infinite game, -1 if
+		 *         there are no such games.
+		 */
+		public int getMax() {
+			return maxCards;
+		}
+
+		/**
+		 * @return Deck of the longest non-infinite game.
+		 */
+		public Deck getLongest() {
+			return longest;
+		}
+
+		/**
+		 * @return Histogram of game lengths: element i is the number of non-infinite
+		 *         games where the number of cards played is in [i * 100, (i+1) * 100);
+		 *         last element counts all longer games.
+		 */
+		public long[] getHistogram() {
+			return histogram.clone();
+		}
+	}
+
+	private final Rules rules;
+
+	private final List<Feature> features;
+
+	// Engine used by each thread
+	private final ThreadLocal<Engine> engine;
+
+	// Result slot reused by each thread
+	private final ThreadLocal<GameResult> result = ThreadLocal.withInitial(GameResult::new);
+
+	/**
+	 *
+	 * @param rules    Rules for the games.
+	 * @param features Features used to group games.
+	 * @param engines  Provides an engine for each thread.
+	 */
+	public DeckAnalytics(Rules rules, List<Feature> features, Supplier<Engine> engines) {
+		long groups = 1;
+		for (Feature f : features) {
+			groups *= f.cardinality;
+			if (groups > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Too many groups.");
+		}
+		this.rules = rules;
+		this.features = new ArrayList<>(features);
+		this.engine = ThreadLocal.withInitial(engines);
+	}
+
+	/**
+	 * Plays all decks in given range.
+	 *
+	 * @return Statistics for each group, keyed by group (see {@link #key(Deck)}).
+	 */
+	public Map<Long, Aggregate> analyze(DeckSpace space) {
+		return reduce(space.parallelStream());
+	}
+
+	/**
+	 * Plays random decks matching a pattern.
+	 *
+	 * @param pattern Pattern for the decks.
+	 * @param games   Number of games to play.
+	 * @param seed    Seed for random number generation.
+	 * @return Statistics for each group, keyed by group (see {@link #key(Deck)}).
+	 */
+	public Map<Long, Aggregate> analyze(DeckPattern pattern, long games, long seed) {
+		return reduce(new SplittableRandom(seed).longs(games, 0, pattern.count()).parallel()
+				.mapToObj(pattern::unrank));
+	}
+
+	private Map<Long, Aggregate> reduce(Stream<Deck> decks) {
+		return decks.collect(Collector.of(HashMap<Long, Aggregate>::new, (m, d) -> {
+			GameResult r = result.get();
+			engine.get().play(d, r);
+			if (!r.isUninteresting())
+				m.computeIfAbsent(key(d), k -> new Aggregate()).add(d, r);
+		}, (m1, m2) -> {
+			m2.forEach((k, a) -> m1.merge(k, a, (a1, a2) -> {
+				a1.add(a2);
+				return a1;
+			}));
+			return m1;
+		}));
+	}
+
+	/**
+	 * @return The group a deck belongs to, computed from its features.
+	 */
+	public long key(Deck deck) {
+		long key = 0;
+		for (Feature f : features)
+			key = key * f.cardinality + f.valueOf(deck);
+		return key;
+	}
+
+	/**
+	 * @return Values of the features for given group.
+	 */
+	private int[] values(long key) {
+		int[] result = new int[features.size()];
+		for (int i = result.length - 1; i >= 0; --i) {
+			result[i] = (int) (key % features.get(i).cardinality);
+			key /= features.get(i).cardinality;
+		}
+		return result;
+	}
+
+	/**
+	 * Saves statistics as CSV, one line per group, sorted by group. Histograms are
+	 * saved as a list of counts separated by spaces, without trailing zeros.
+	 *
+	 * @param results    Statistics for each group.
+	 * @param saveFolder Folder where to save the file.
+	 * @throws IOException
+	 */
+	public void save(Map<Long, Aggregate> results, File saveFolder) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (Feature f : features)
+			sb.append(f.getName()).append(',');
+		sb.append("games,infinite,mean,max,longest,histogram\n");
+
+		List<Long> keys = new ArrayList<>(results.keySet());
+		keys.sort(null);
+		for (long k : keys) {
+			Aggregate a = results.get(k);
+			int[] v = values(k);
+			for (int i = 0; i < v.length; ++i)
+				sb.append(features.get(i).format(v[i], rules)).append(',');
+			sb.append(a.games).append(',').append(a.infinite).append(',')
+					.append(String.format(Locale.ROOT, "%.2f", a.getMean())).append(',').append(a.maxCards)
+					.append(',').append(a.longest == null ? "" : a.longest.toString()).append(',');
+			int last = BINS - 1;
+			while ((last > 0) && (a.histogram[last] == 0))
+				--last;
+			for (int i = 0; i <= last; ++i)
+				sb.append((i == 0) ? "" : " ").append(a.histogram[i]);
+			sb.append('\n');
+		}
+		FileUtil.writeFileAtomically(new File(saveFolder, RESULTS_FILE_NAME), sb.toString());
+	}
+
+	/**
+	 * Prints the groups with longest average games, ranked by a lower confidence
+	 * bound of their average, so that groups with few games are not favored;
+	 * groups with less than {@link #MIN_GAMES} games are skipped.
+	 */
+	public void print(Map<Long, Aggregate> results, PrintStream out) {
+		long games = 0, infinite = 0;
+		for (Aggregate a : results.values()) {
+			games += a.games;
+			infinite += a.infinite;
+		}
+		out.println("Played " + games + " games (infinite=" + infinite + ") in " + results.size() + " groups.");
+
+		List<Long> keys = new ArrayList<>();
+		for (Map.Entry<Long, Aggregate> e : results.entrySet())
+			if (e.getValue().games >= MIN_GAMES)
+				keys.add(e.getKey());
+		keys.sort((k1, k2) -> Double.compare(results.get(k2).getLowerBound(), results.get(k1).getLowerBound()));
+		if (keys.size() < results.size())
+			out.println((results.size() - keys.size()) + " groups with less than " + MIN_GAMES
+					+ " games are not printed.");
+		if (keys.size() > MAX_PRINTED)
+			out.println("Groups with longest average games:");
+		for (long k : keys.subList(0, Math.min(keys.size(), MAX_PRINTED))) {
+			Aggregate a = results.get(k);
+			int[] v = values(k);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < v.length; ++i)
+				sb.append(features.get(i).getName()).append('=').append(features.get(i).format(v[i], rules))
+						.append(' ');
+			out.println(String.format(Locale.ROOT, "%s: games=%d, infinite=%d, mean=%.2f, stddev=%.2f, max=%d",
+					sb.toString().trim(), a.games, a.infinite, a.getMean(), a.getStandardDeviation(), a.maxCards));
+		}
+	}
+}
@@ -16,26 +16,27 @@
 
 package io.github.mzattera.cavacamixa;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Describes one deck; it shows where to insert the 12 "penalty cards" (aces, 2s
  * & 3s) inside a deck beginning with 28 nulls, to build the final deck.
  *
+ * Since cards with same value are equivalent in the game, several insertion
+ * sequences build the same deck. Configurations are therefore always kept in
+ * canonical form, where cards with same value appear in the deck by increasing
+ * seed (e.g. the ace of bastoni is the first ace in the deck); this way each
+ * deck has exactly one configuration and configurations can be safely compared
+ * or used as keys in hash maps.
+ *
  * @author Massimiliano "Maxi" Zattera
  */
 public class DeckConfig {
 
-	// Deck containing only "nulls"
-	private final static List<Integer> EMPTY_DECK = new ArrayList<>(40);
-	static {
-		for (int i = 0; i < 28; ++i)
-			EMPTY_DECK.add(0);
-	}
-
-	// Insertion points for the "face" cards
-	private int[] p = new int[12];
+	// Final position in the deck of each "face" card, in same order as insertion
+	// points: pos[seed * 3 + value - 1]
+	private final int[] pos = new int[12];
 
 	/**
 	 * @param seed  0-3 (bastoni, denari, coppe, spade)
@@ -43,7 +44,21 @@ public class DeckConfig {
 	 * @return Where to insert given card in the deck
 	 */
 	public int get(int seed, int value) {
-		return p[seed * 3 + value - 1];
+		int i = seed * 3 + value - 1;
+		int p = pos[i];
+		for (int j = i + 1; j < pos.length; ++j) // Cards inserted later before this one
+			if (pos[j] < pos[i])
+				--p;
+		return p;
+	}
+
+	/**
+	 * @param seed  0-3 (bastoni, denari, coppe, spade)
+	 * @param value 1-3 (card face value 1=ace)
+	 * @return Position of given card in the final deck.
+	 */
+	public int getPosition(int seed, int value) {
+		return pos[seed * 3 + value - 1];
 	}
 
 	private boolean isInfinite = false;
@@ -66,28 +81,70 @@ public class DeckConfig {
 		return (this.isInfinite = isInfinite);
 	}
 
+	/**
+	 * Creates the configuration of the "initial" deck (see {@link Deck#Deck()}).
+	 */
 	public DeckConfig() {
+		this(new Deck());
 	}
 
 	/**
-	 * Constructor from String representation.
+	 * Creates the configuration of given 40 cards deck.
+	 * 
+	 * @param deck
+	 */
+	public DeckConfig(Deck deck) {
+		if (deck.cards.length != 40)
+			throw new IllegalArgumentException("Invalid deck length: " + deck.cards.length);
+
+		int[] seen = new int[4]; // Cards of each value found so far
+		for (int i = 0; i < 40; ++i) {
+			int value = deck.cards[i];
+			if (value == 0)
+				continue;
+			if ((value < 0) || (value > 3) || (seen[value] == 4))
+				throw new IllegalArgumentException("Invalid deck: " + deck);
+			pos[seen[value]++ * 3 + value - 1] = i;
+		}
+		if ((seen[1] != 4) || (seen[2] != 4) || (seen[3] != 4))
+			throw new IllegalArgumentException("Invalid deck: " + deck);
+	}
+
+	/**
+	 * Constructor from String representation (insertion points of the 12 cards).
+	 * Configurations not in canonical form are accepted and converted.
 	 * 
 	 * @param cfg
 	 */
 	public DeckConfig(String cfg) {
+		this(parse(cfg));
+	}
+
+	/**
+	 * @return The deck built by the insertion points in given configuration
+	 *         string.
+	 */
+	private static Deck parse(String cfg) {
 		cfg = cfg.trim();
 		if (!cfg.startsWith("[") || !cfg.endsWith("]"))
 			throw new IllegalArgumentException("Invalid deck configuration: " + cfg);
 		String[] s = cfg.substring(1, cfg.length() - 1).split(",");
-		if (s.length != p.length)
+		if (s.length != 12)
 			throw new IllegalArgumentException("Invalid deck configuration: " + cfg);
-		for (int i = 0; i < p.length; ++i)
-			p[i] = Integer.parseInt(s[i]);
+
+		int[] cards = new int[40];
+		int size = 28;
+		for (int i = 0; i < 12; ++i, ++size) {
+			int p = Integer.parseInt(s[i].trim());
+			if ((p < 0) || (p > size))
+				throw new IllegalArgumentException("Invalid deck configuration: " + cfg);
+			System.arraycopy(cards, p, cards, p + 1, size - p);
+			cards[p] = i % 3 + 1;
+		}
+		return new Deck(cards);
 	}
 
 	public static DeckConfig fromDeck(String deck) {
-		DeckConfig result = new DeckConfig();
-
 		String t = deck.trim();
 		if (t.length() != 41)
 			throw new IllegalArgumentException("Invalid deck format: " + deck);
@@ -95,39 +152,51 @@ public class DeckConfig {
 		if (t.length() != 40)
 			throw new IllegalArgumentException("Invalid deck format: " + deck);
 
-		StringBuilder sb = new StringBuilder(t);
-		for (int seed = 3; seed >= 0; --seed) {
-			for (char value = '3'; value >= '1'; --value) {
-				int pos = sb.lastIndexOf(value + "");
-				if (pos==-1)
-					throw new IllegalArgumentException("Invalid deck format: " + deck);
-				result.p[seed * 3 + value - '1'] = pos;
-				sb.deleteCharAt(pos);
-			}
+		try {
+			return new DeckConfig(new Deck(t));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid deck format: " + deck);
 		}
+	}
 
-		return result;
+	/**
+	 * 
+	 * @param rank Position of a deck in the sequence of all possible deck
+	 *             combinations.
+	 * @return The configuration of the deck at given position in the sequence of
+	 *         all possible deck combinations.
+	 */
+	public static DeckConfig fromRank(long rank) {
+		return new DeckConfig(Deck.unrank(rank));
 	}
 
 	/**
-	 * Call this repeatedly to obtain all possible decks.
+	 * @return Position of the deck for this configuration in the sequence of all
+	 *         possible deck combinations.
+	 */
+	public long rank() {
+		return toDeck().rank();
+	}
+
+	/**
+	 * Call this repeatedly to obtain all possible decks; decks are returned in
+	 * same order as {@link Deck#next()}, each one exactly once.
 	 *
 	 * @return Next variation of a deck, or null if there is no next version
 	 */
 	public DeckConfig next() {
-		DeckConfig result = new DeckConfig();
-
-		for (int i = 0; i < 12; ++i) {
-			if (p[i] < (28 + i)) { // This card can be put in a later position in the deck; move it
-				result.p[i] = p[i] + 1;
-				for (++i; i < 12; ++i) // Copy rest and exit
-					result.p[i] = p[i];
-				return result;
-			} else { // Reset position and move another card
-				result.p[i] = 0;
-			}
-		}
-		return null; // Cannot move any card
+		Deck next = toDeck().next();
+		return (next == null) ? null : new DeckConfig(next);
+	}
+
+	/**
+	 * @return The 40-card deck for this configuration.
+	 */
+	public Deck toDeck() {
+		int[] cards = new int[40];
+		for (int i = 0; i < pos.length; ++i)
+			cards[pos[i]] = i % 3 + 1;
+		return new Deck(cards);
 	}
 
 	/**
@@ -137,17 +206,7 @@ public class DeckConfig {
 	 * @return A 40-card deck
 	 */
 	public static List<Integer> buildDeck(DeckConfig cfg) {
-		List<Integer> deck = new ArrayList<>(EMPTY_DECK);
-		for (int seed = 0; seed < 4; ++seed) {
-			for (int value = 1; value <= 3; ++value) {
-				int i = cfg.get(seed, value);
-				if (i == deck.size())
-					deck.add(value);
-				else
-					deck.add(i, value);
-			}
-		}
-		return deck;
+		return cfg.toDeck().toList();
 	}
 
 	/**
@@ -161,36 +220,30 @@ public class DeckConfig {
 
 	@Override
 	public boolean equals(Object obj) {
-		if (obj == null)
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DeckConfig))
 			return false;
-
-		if (obj instanceof DeckConfig) {
-			DeckConfig other = (DeckConfig) obj;
-			// TODO URGENT there are different configurations leading to same deck.....
-			return buildDeck(this).equals(buildDeck(other));
-		} else {
-			return false;
-		}
+		return Arrays.equals(pos, ((DeckConfig) obj).pos);
 	}
 
 	@Override
 	public int hashCode() {
-		return p.hashCode();
+		return Arrays.hashCode(pos);
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append('[');
-		for (int i = 0; i < 11; ++i)
-			sb.append(p[i]).append(',');
-		sb.append(p[11]).append(']');
+		for (int seed = 0; seed < 4; ++seed)
+			for (int value = 1; value <= 3; ++value)
+				sb.append(get(seed, value)).append((seed * 3 + value < 12) ? "," : "]");
 		return sb.toString();
 	}
 
 	public static void main(String args[]) {
 		DeckConfig cfg = new DeckConfig("[22,15,22,15,5,23,3,0,0,0,0,0]");
-		Deck deck = new Deck(buildDeck(cfg));
-		System.out.println(deck.toString());
+		System.out.println(cfg.toDeck().toString());
 	}
 }
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.Arrays;
+
+/**
+ * A pattern describing a subset of all possible decks. The pattern has one
+ * character for each card in the deck:
+ * <ul>
+ * <li>'?' matches any card;</li>
+ * <li>'*' matches any penalty card;</li>
+ * <li>a digit matches only a card with that penalty value (0 for normal
+ * cards).</li>
+ * </ul>
+ * Dashes can be used anywhere to make the pattern more readable (e.g.
+ * "0000????????????????-0001????????????????"). If dashes split the pattern in
+ * one part for each player, each part describes the hand of a player and it
+ * can be shorter than the hand, missing cards being matched by '?' (e.g.
+ * "0000-0001" is the same as the pattern above); otherwise, the pattern must
+ * have exactly one character for each card.
+ *
+ * Decks matching a pattern are sorted in same order as {@link Deck#next()};
+ * they can be counted exactly, ranked and enumerated. Patterns are immutable
+ * and thread-safe.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class DeckPattern {
+
+	/**
+	 * Maximum number of states in the table used to count decks.
+	 */
+	private static final int MAX_STATES = 1 << 24;
+
+	private final Rules rules;
+
+	// Pattern, without dashes
+	private final String pattern;
+
+	// allowed[i] has bit v set if a card with penalty v can be at position i
+	private final int[] allowed;
+
+	// True if the pattern matches any deck
+	private final boolean any;
+
+	// A state is the number of cards of each value still to place in the deck,
+	// encoded as sum of remaining[v] * stride[v]
+	private final int[] stride;
+
+	// matches[state] = number of ways to complete a deck from that state, -1 if
+	// this does not fit in a long
+	private final long[] matches;
+
+	// Scratch array used by advance() in each thread
+	private final ThreadLocal<int[]> remaining;
+
+	/**
+	 *
+	 * @param pattern Pattern for a deck with Italian rules.
+	 */
+	public DeckPattern(String pattern) {
+		this(Rules.ITALIAN, pattern);
+	}
+
+	/**
+	 *
+	 * @param rules   Rules for the game the decks are used for.
+	 * @param pattern
+	 */
+	public DeckPattern(Rules rules, String pattern) {
+		this.rules = rules;
+		this.pattern = expand(rules, pattern.trim());
+		if (this.pattern.length() != rules.getDeckSize())
+			throw new IllegalArgumentException("Invalid deck pattern: " + pattern);
+
+		int values = rules.getMaxPenalty() + 1;
+		int all = (1 << values) - 1;
+		allowed = new int[this.pattern.length()];
+		boolean any = true;
+		for (int i = 0; i < allowed.length; ++i) {
+			char c = this.pattern.charAt(i);
+			if (c == '?') {
+				allowed[i] = all;
+			} else if (c == '*') {
+				allowed[i] = all & ~1;
+				any = false;
+			} else if ((c >= '0') && (c - '0' < values)) {
+				allowed[i] = 1 << (c - '0');
+				any = false;
+			} else {
+				throw new IllegalArgumentException("Invalid deck pattern: " + pattern);
+			}
+		}
+		this.any = any;
+
+		stride = new int[values];
+		long states = 1;
+		for (int v = 0; v < values; ++v) {
+			stride[v] = (int) states;
+			states *= rules.getCount(v) + 1;
+			if (states > MAX_STATES)
+				throw new IllegalArgumentException("Too many cards to use patterns with rules: " + rules);
+		}
+
+		// States are filled by increasing value, so states with one card less are
+		// always filled first
+		matches = new long[(int) states];
+		int[] remaining = new int[values];
+		int n = 0; // Cards remaining
+		matches[0] = 1;
+		for (int s = 1; s < matches.length; ++s) {
+			// Next state
+			for (int v = 0;; ++v) {
+				if (remaining[v] < rules.getCount(v)) {
+					remaining[v]++;
+					n++;
+					break;
+				}
+				n -= remaining[v];
+				remaining[v] = 0;
+			}
+
+			int i = allowed.length - n; // Position of next card to place
+			long m = 0;
+			for (int v = 0; v < values; ++v) {
+				if ((remaining[v] == 0) || ((allowed[i] & (1 << v)) == 0))
+					continue;
+				long k = matches[s - stride[v]];
+				if ((k < 0) || (m > Long.MAX_VALUE - k)) {
+					m = -1;
+					break;
+				}
+				m += k;
+			}
+			matches[s] = m;
+		}
+
+		this.remaining = ThreadLocal.withInitial(() -> new int[values]);
+	}
+
+	/**
+	 * @return Given pattern without dashes; if dashes split it in one part for each
+	 *         player, parts are padded with '?' to the size of the player's hand.
+	 */
+	private static String expand(Rules rules, String pattern) {
+		String[] hands = pattern.split("-", -1);
+		if ((hands.length != rules.getPlayers()) || (pattern.length() - hands.length + 1 == rules.getDeckSize()))
+			return pattern.replace("-", "");
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < hands.length; ++i) {
+			if (hands[i].length() > rules.getHandSize(i))
+				throw new IllegalArgumentException("Invalid deck pattern: " + pattern);
+			sb.append(hands[i]);
+			for (int j = hands[i].length(); j < rules.getHandSize(i); ++j)
+				sb.append('?');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return A pattern matching all decks for given rules.
+	 */
+	public static DeckPattern any(Rules rules) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rules.getDeckSize(); ++i)
+			sb.append('?');
+		return new DeckPattern(rules, sb.toString());
+	}
+
+	/**
+	 * @return Rules for the game the decks are used for.
+	 */
+	public Rules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return Number of decks matching this pattern.
+	 * @throws ArithmeticException If the number of decks does not fit in a long.
+	 */
+	public long count() {
+		return checked(matches[matches.length - 1]);
+	}
+
+	/**
+	 * @return True if given deck matches this pattern.
+	 */
+	public boolean matches(Deck deck) {
+		if (!rules.accepts(deck))
+			return false;
+		for (int i = 0; i < allowed.length; ++i)
+			if ((allowed[i] & (1 << deck.cards[i])) == 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return The first deck matching this pattern, or null if no deck matches.
+	 */
+	public Deck first() {
+		if (matches[matches.length - 1] == 0)
+			return null;
+
+		int[] remaining = initialCounts();
+		int state = matches.length - 1;
+		int[] cards = new int[allowed.length];
+		for (int i = 0; i < cards.length; ++i) {
+			int v = smallest(i, 0, remaining, state);
+			cards[i] = v;
+			remaining[v]--;
+			state -= stride[v];
+		}
+		return new Deck(cards);
+	}
+
+	/**
+	 * @param deck A deck matching this pattern.
+	 * @return Next deck matching this pattern, or null if given deck is the last
+	 *         one.
+	 */
+	public Deck next(Deck deck) {
+		if (any)
+			return deck.next();
+		check(deck);
+		Deck result = new Deck(deck);
+		return advance(result) ? result : null;
+	}
+
+	/**
+	 * Turns given deck into the next deck matching this pattern, without
+	 * allocating a new deck; this must be used only for decks not shared with
+	 * others.
+	 * 
+	 * @param deck A deck matching this pattern.
+	 * @return False if given deck is the last one, which is left unchanged.
+	 */
+	boolean advance(Deck deck) {
+		if (any)
+			return deck.advance();
+
+		int[] cards = deck.cards;
+		int[] remaining = this.remaining.get();
+		Arrays.fill(remaining, 0);
+		int state = 0;
+		for (int i = cards.length - 1; i >= 0; --i) {
+			// Tries to put a bigger card in position i, keeping cards before it
+			remaining[cards[i]]++;
+			state += stride[cards[i]];
+			int v = smallest(i, cards[i] + 1, remaining, state);
+			if (v < 0)
+				continue;
+
+			// Places the smallest cards possible after position i
+			for (int j = i; j < cards.length; ++j) {
+				if (j > i)
+					v = smallest(j, 0, remaining, state);
+				cards[j] = v;
+				remaining[v]--;
+				state -= stride[v];
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The smallest card not lower than from that can be put at position i,
+	 *         given remaining cards, so that the deck can be completed; -1 if there
+	 *         is no such card.
+	 */
+	private int smallest(int i, int from, int[] remaining, int state) {
+		for (int v = from; v < stride.length; ++v)
+			if ((remaining[v] > 0) && ((allowed[i] & (1 << v)) != 0) && (matches[state - stride[v]] != 0))
+				return v;
+		return -1;
+	}
+
+	/**
+	 * @param deck A deck matching this pattern.
+	 * @return Position of given deck in the sequence of decks matching this
+	 *         pattern (0 for the first deck).
+	 * @throws ArithmeticException If the position does not fit in a long.
+	 */
+	public long rank(Deck deck) {
+		check(deck);
+
+		int[] remaining = initialCounts();
+		int state = matches.length - 1;
+		long rank = 0;
+		for (int i = 0; i < allowed.length; ++i) {
+			int c = deck.cards[i];
+			for (int v = 0; v < c; ++v) { // Skips all decks with a smaller card here
+				if ((remaining[v] > 0) && ((allowed[i] & (1 << v)) != 0))
+					rank = Math.addExact(rank, checked(matches[state - stride[v]]));
+			}
+			remaining[c]--;
+			state -= stride[c];
+		}
+		return rank;
+	}
+
+	/**
+	 *
+	 * @param rank Position of a deck in the sequence of decks matching this
+	 *             pattern.
+	 * @return The deck at given position in the sequence of decks matching this
+	 *         pattern.
+	 */
+	public Deck unrank(long rank) {
+		long total = matches[matches.length - 1];
+		if ((rank < 0) || ((total >= 0) && (rank >= total)))
+			throw new IllegalArgumentException("Invalid rank: " + rank);
+
+		int[] remaining = initialCounts();
+		int state = matches.length - 1;
+		int[] cards = new int[allowed.length];
+		for (int i = 0; i < cards.length; ++i) {
+			int c = 0;
+			for (;; ++c) {
+				if ((remaining[c] == 0) || ((allowed[i] & (1 << c)) == 0))
+					continue;
+				long k = matches[state - stride[c]]; // Decks with card c here
+				if ((k < 0) || (rank < k))
+					break;
+				rank -= k;
+			}
+			cards[i] = c;
+			remaining[c]--;
+			state -= stride[c];
+		}
+		return new Deck(cards);
+	}
+
+	private int[] initialCounts() {
+		int[] result = new int[stride.length];
+		for (int v = 0; v < result.length; ++v)
+			result[v] = rules.getCount(v);
+		return result;
+	}
+
+	private void check(Deck deck) {
+		if (!matches(deck))
+			throw new IllegalArgumentException("Deck " + deck + " does not match pattern " + pattern);
+	}
+
+	private static long checked(long count) {
+		if (count < 0)
+			throw new ArithmeticException("Number of decks does not fit in a long.");
+		return count;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DeckPattern))
+			return false;
+		DeckPattern other = (DeckPattern) obj;
+		return rules.equals(other.rules) && pattern.equals(other.pattern);
+	}
+
+	@Override
+	public int hashCode() {
+		return rules.hashCode() * 31 + pattern.hashCode();
+	}
+
+	/**
+	 * @return The pattern, without dashes.
+	 */
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
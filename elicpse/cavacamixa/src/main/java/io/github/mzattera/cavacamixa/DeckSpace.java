@@ -0,0 +1,206 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A range of decks, in the sequence of decks matching a {@link DeckPattern}
+ * (by default, all decks for Italian rules). Decks can be processed as streams,
+ * which split evenly by rank when processed in parallel, e.g.:
+ *
+ * <pre>
+ * DeckSpace.range(a, b).parallelStream().map(Player::play).collect(GameCollectors.longestGame())
+ * </pre>
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class DeckSpace {
+
+	/**
+	 * Ranges smaller than this are not split further.
+	 */
+	private static final long MIN_SPLIT = 1_000;
+
+	private static class DeckSpliterator implements Spliterator<Deck> {
+
+		private final DeckPattern pattern;
+
+		// Next rank to return and end of the range
+		private long index;
+		private final long end;
+
+		// Last deck returned (at rank index - 1), or null if not known
+		private Deck last;
+
+		DeckSpliterator(DeckPattern pattern, long index, long end, Deck last) {
+			this.pattern = pattern;
+			this.index = index;
+			this.end = end;
+			this.last = last;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Deck> action) {
+			if (index >= end)
+				return false;
+			action.accept(advance());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Deck> action) {
+			while (index < end)
+				action.accept(advance());
+		}
+
+		private Deck advance() {
+			last = (last == null) ? pattern.unrank(index) : pattern.next(last);
+			index++;
+			return last;
+		}
+
+		@Override
+		public Spliterator<Deck> trySplit() {
+			long size = end - index;
+			if (size < 2 * MIN_SPLIT)
+				return null;
+
+			// Returns first half, which can continue from last deck returned
+			long mid = index + size / 2;
+			Spliterator<Deck> prefix = new DeckSpliterator(pattern, index, mid, last);
+			index = mid;
+			last = null;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+
+	private final DeckPattern pattern;
+
+	private final long from, to;
+
+	private DeckSpace(DeckPattern pattern, long from, long to) {
+		long count = pattern.count();
+		if ((from < 0) || (to < from) || (to > count))
+			throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+		this.pattern = pattern;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * @return All decks for Italian rules.
+	 */
+	public static DeckSpace all() {
+		return of(DeckPattern.any(Rules.ITALIAN));
+	}
+
+	/**
+	 * @return All decks matching given pattern.
+	 * @throws ArithmeticException If the number of decks does not fit in a long.
+	 */
+	public static DeckSpace of(DeckPattern pattern) {
+		return new DeckSpace(pattern, 0, pattern.count());
+	}
+
+	/**
+	 * @param from Rank of first deck in the range.
+	 * @param to   Rank of the deck after last one in the range.
+	 * @return Decks for Italian rules with rank in [from, to).
+	 */
+	public static DeckSpace range(long from, long to) {
+		return range(DeckPattern.any(Rules.ITALIAN), from, to);
+	}
+
+	/**
+	 * @param pattern Pattern for decks in the range.
+	 * @param from    Rank of first deck in the range, in the sequence of decks
+	 *                matching the pattern.
+	 * @param to      Rank of the deck after last one in the range.
+	 * @return Decks matching the pattern, with rank in [from, to).
+	 */
+	public static DeckSpace range(DeckPattern pattern, long from, long to) {
+		return new DeckSpace(pattern, from, to);
+	}
+
+	/**
+	 * @return Pattern for decks in this range.
+	 */
+	public DeckPattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @return Rank of first deck in this range.
+	 */
+	public long getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return Rank of the deck after last one in this range.
+	 */
+	public long getTo() {
+		return to;
+	}
+
+	/**
+	 * @return Number of decks in this range.
+	 */
+	public long size() {
+		return to - from;
+	}
+
+	/**
+	 * @return A spliterator over decks in this range, sorted by rank.
+	 */
+	public Spliterator<Deck> spliterator() {
+		return new DeckSpliterator(pattern, from, to, null);
+	}
+
+	/**
+	 * @return A sequential stream of decks in this range.
+	 */
+	public Stream<Deck> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * @return A parallel stream of decks in this range.
+	 */
+	public Stream<Deck> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	@Override
+	public String toString() {
+		return "DeckSpace [pattern=" + pattern + ", from=" + from + ", to=" + to + "]";
+	}
+}
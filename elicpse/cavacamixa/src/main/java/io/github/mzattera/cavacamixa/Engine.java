@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.function.Supplier;
+
+/**
+ * Something that can play a game; {@link Player#play(Deck)} is the reference
+ * implementation for Italian rules, faster engines for any {@link Rules} are
+ * created by {@link Rules#compile()}.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+@FunctionalInterface
+public interface Engine {
+
+	/**
+	 * Name of the reference engine ({@link Player#play(Deck)}).
+	 */
+	String REFERENCE = "reference";
+
+	/**
+	 * Name of the engines created by {@link Rules#compile()}.
+	 */
+	String FAST = "fast";
+
+	/**
+	 * Name of the engines remembering positions of games already played, for two
+	 * players.
+	 */
+	String GRAPH = "graph";
+
+	/**
+	 * Plays a game using given deck.
+	 * 
+	 * @param deck
+	 * @return Game statistics.
+	 */
+	GameStats play(Deck deck);
+
+	/**
+	 * Plays a game using given deck, storing its results in given object. This
+	 * allows playing games without creating statistics for each of them; engines
+	 * created by {@link Rules#compile()} do not allocate memory here, except for
+	 * infinite games.
+	 * 
+	 * @param deck
+	 * @param result Where to store game results.
+	 */
+	default void play(Deck deck, GameResult result) {
+		result.set(play(deck));
+	}
+
+	/**
+	 * Returns a supplier of engines with given name. Since engines are not
+	 * thread-safe, the supplier must be invoked once for each thread.
+	 * 
+	 * @param name  One of {@link #REFERENCE}, {@link #FAST} or {@link #GRAPH}; if
+	 *              null, the fast engine is used (it plays exactly as the
+	 *              reference engine, see {@link EngineHarness}, without allocating
+	 *              memory for each game).
+	 * @param rules Rules of the games to play.
+	 * @return A supplier of engines playing games with given rules.
+	 */
+	static Supplier<Engine> supplier(String name, Rules rules) {
+		if (name == null)
+			name = FAST;
+		switch (name) {
+		case REFERENCE:
+			if (!rules.equals(Rules.ITALIAN))
+				throw new IllegalArgumentException("Reference engine supports only Italian rules.");
+			return () -> Player::play;
+		case FAST:
+			return rules::compile;
+		case GRAPH:
+			if (rules.getPlayers() != 2)
+				throw new IllegalArgumentException("Graph engine supports only two players.");
+			return () -> new GraphEngine(rules);
+		default:
+			throw new IllegalArgumentException("Unknown engine: " + name);
+		}
+	}
+}
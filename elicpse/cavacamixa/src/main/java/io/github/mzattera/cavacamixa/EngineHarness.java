@@ -0,0 +1,225 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays the same decks with a reference engine and with a candidate engine,
+ * reporting any difference in game results and how fast each engine is. This
+ * is used to check that a new engine can replace {@link Player#play(Deck)}.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class EngineHarness {
+
+	/**
+	 * Maximum number of mismatches printed.
+	 */
+	private static final int MAX_PRINTED = 20;
+
+	/**
+	 * Rules of a small variant with many infinite games, used to check how
+	 * engines handle loops, since no infinite game is known for Italian rules.
+	 */
+	public static final Rules LOOP_VARIANT = Rules.forName("8,2,2,2");
+
+	/**
+	 * Name of the file, in the root of the project, listing long games known.
+	 */
+	public static final String KNOWN_GAMES_FILE_NAME = "AllGames.txt";
+
+	// A 40 cards deck anywhere in a line, optionally with a dash between hands
+	private static final Pattern DECK = Pattern.compile("(?<![0-9])[0-3]{20}-?[0-3]{20}(?![0-9])");
+
+	private final Engine reference;
+
+	private final Engine candidate;
+
+	/**
+	 *
+	 * @param reference Engine giving correct results.
+	 * @param candidate Engine to check.
+	 */
+	public EngineHarness(Engine reference, Engine candidate) {
+		this.reference = reference;
+		this.candidate = candidate;
+	}
+
+	/**
+	 * Looks for the file with long games known ({@link #KNOWN_GAMES_FILE_NAME})
+	 * in current folder and in its parents, so it is found when running from the
+	 * project root or from a module folder.
+	 *
+	 * @return The file, or null if it cannot be found.
+	 */
+	public static File findKnownGames() {
+		for (File dir = new File("").getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+			File f = new File(dir, KNOWN_GAMES_FILE_NAME);
+			if (f.isFile())
+				return f;
+		}
+		return null;
+	}
+
+	/**
+	 * Builds a corpus of decks to check engines with Italian rules. This contains
+	 * the longest game known, the "initial" deck, all decks found in given files
+	 * and some random decks. Files can be any text file with decks in them, such
+	 * as console logs or files where infinite and longest games were saved.
+	 *
+	 * @param files   Files to read decks from.
+	 * @param samples Number of random decks to add.
+	 * @param seed    Seed for random number generation.
+	 * @return A list of distinct decks.
+	 * @throws IOException
+	 */
+	public static List<Deck> buildCorpus(List<File> files, int samples, long seed) throws IOException {
+		Set<String> decks = new LinkedHashSet<>();
+		decks.add(new Deck(LocalSearch.DEFAULT_SEED).toString());
+		decks.add(new Deck().toString());
+		for (File f : files) {
+			for (String line : Files.readAllLines(f.toPath(), StandardCharsets.UTF_8)) {
+				Matcher m = DECK.matcher(line);
+				while (m.find()) {
+					try {
+						decks.add(new Deck(m.group()).toString());
+					} catch (IllegalArgumentException e) { // Not a deck, but a number with as many digits
+					}
+				}
+			}
+		}
+
+		SplittableRandom rnd = new SplittableRandom(seed);
+		for (int i = 0; i < samples; ++i)
+			decks.add(Deck.unrank(rnd.nextLong(Deck.TOTAL_DECKS)).toString());
+
+		List<Deck> result = new ArrayList<>(decks.size());
+		for (String d : decks)
+			result.add(new Deck(d));
+		return result;
+	}
+
+	/**
+	 * Checks loop detection, comparing the engine compiled for given two-player
+	 * rules with the generic engine for any number of players, which is a separate
+	 * implementation, on all decks where both players have a penalty card (the
+	 * others are not played by the two-player engine).
+	 *
+	 * @param rules Rules for the games, e.g. {@link #LOOP_VARIANT}.
+	 * @param out   Where to print the report.
+	 * @return Number of decks for which the engines gave different results.
+	 */
+	public static int checkLoops(Rules rules, PrintStream out) {
+		if (rules.getPlayers() != 2)
+			throw new IllegalArgumentException("Rules must be for two players.");
+		List<Deck> corpus = new ArrayList<>();
+		DeckSpace.of(DeckPattern.any(rules)).stream().filter(d -> hasPenalty(rules, d, 0) && hasPenalty(rules, d, 1))
+				.forEach(corpus::add);
+		return new EngineHarness(new MultiPlayerEngine(rules), rules.compile()).run(corpus, out);
+	}
+
+	/**
+	 * @return True if given player is dealt at least a penalty card.
+	 */
+	private static boolean hasPenalty(Rules rules, Deck deck, int player) {
+		int start = rules.getHandStart(player);
+		for (int i = start; i < start + rules.getHandSize(player); ++i)
+			if (deck.cards[i] != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Plays all decks in the corpus with both engines, printing a report.
+	 *
+	 * @param corpus Decks to play.
+	 * @param out    Where to print the report.
+	 * @return Number of decks for which the engines gave different results.
+	 */
+	public int run(List<Deck> corpus, PrintStream out) {
+		// Warms up both engines, so the JIT compiler does not favor either
+		int warmup = Math.min(corpus.size(), 10_000);
+		play(reference, corpus.subList(0, warmup));
+		play(candidate, corpus.subList(0, warmup));
+
+		long start = System.nanoTime();
+		GameStats[] expected = play(reference, corpus);
+		long referenceTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		GameStats[] actual = play(candidate, corpus);
+		long candidateTime = System.nanoTime() - start;
+
+		int mismatches = 0, uninteresting = 0, infinite = 0;
+		long cards = 0;
+		for (int i = 0; i < expected.length; ++i) {
+			if (expected[i].isUninteresting())
+				uninteresting++;
+			if (expected[i].isInfinite())
+				infinite++;
+			cards += expected[i].getCardsPlayed();
+			if (!sameResults(expected[i], actual[i])) {
+				if (mismatches++ < MAX_PRINTED)
+					out.println("Mismatch for deck " + corpus.get(i) + ":\n\texpected: " + expected[i]
+							+ (expected[i].isInfinite() ? " (infinite)" : "") + "\n\tactual:   " + actual[i]
+							+ (actual[i].isInfinite() ? " (infinite)" : ""));
+			}
+		}
+
+		out.println(String.format(Locale.ROOT, "Corpus: %d decks (uninteresting=%d, infinite=%d), %d cards played",
+				corpus.size(), uninteresting, infinite, cards));
+		out.println(String.format(Locale.ROOT, "Reference engine: %d ms, %.0f games/s", referenceTime / 1_000_000,
+				corpus.size() / (referenceTime / 1e9)));
+		out.println(String.format(Locale.ROOT, "Candidate engine: %d ms, %.0f games/s", candidateTime / 1_000_000,
+				corpus.size() / (candidateTime / 1e9)));
+		out.println(String.format(Locale.ROOT, "Speed-up: %.2fx", (double) referenceTime / candidateTime));
+		out.println("Mismatches: " + mismatches);
+
+		return mismatches;
+	}
+
+	private static GameStats[] play(Engine engine, List<Deck> decks) {
+		GameStats[] result = new GameStats[decks.size()];
+		for (int i = 0; i < result.length; ++i)
+			result[i] = engine.play(decks.get(i));
+		return result;
+	}
+
+	/**
+	 * @return True if the two games have same results.
+	 */
+	static boolean sameResults(GameStats a, GameStats b) {
+		return (a.isInfinite() == b.isInfinite()) && (a.isUninteresting() == b.isUninteresting())
+				&& (a.getCardsPlayed() == b.getCardsPlayed()) && (a.getPenaltyCardsPlayed() == b.getPenaltyCardsPlayed())
+				&& (a.getHands() == b.getHands()) && (a.getWinningPlayer() == b.getWinningPlayer())
+				&& Objects.equals(a.getCycle(), b.getCycle());
+	}
+}
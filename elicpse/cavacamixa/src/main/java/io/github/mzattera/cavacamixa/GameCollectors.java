@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Collectors to summarize streams of games, e.g. those obtained from a
+ * {@link DeckSpace}. They can be used with parallel streams.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class GameCollectors {
+
+	private GameCollectors() {
+	}
+
+	/**
+	 * @return A collector returning the longest non-infinite game; when more games
+	 *         have same length, the first one is returned.
+	 */
+	public static Collector<GameStats, ?, Optional<GameStats>> longestGame() {
+		return Collectors.reducing((a, b) -> {
+			if (a.isInfinite())
+				return b;
+			if (b.isInfinite())
+				return a;
+			return (b.getCardsPlayed() > a.getCardsPlayed()) ? b : a;
+		});
+	}
+
+	/**
+	 * @return A collector returning all infinite games.
+	 */
+	public static Collector<GameStats, ?, List<GameStats>> infiniteGames() {
+		return Collector.of(ArrayList::new, (l, s) -> {
+			if (s.isInfinite())
+				l.add(s);
+		}, (l1, l2) -> {
+			l1.addAll(l2);
+			return l1;
+		});
+	}
+
+	/**
+	 * @return A collector grouping infinite games by the loop they end in; keys
+	 *         are given by {@link CycleInfo#getKey()}.
+	 */
+	public static Collector<GameStats, ?, Map<String, List<GameStats>>> infiniteGamesByLoop() {
+		return Collector.of(HashMap::new, (m, s) -> {
+			if (s.getCycle() != null)
+				m.computeIfAbsent(s.getCycle().getKey(), k -> new ArrayList<>()).add(s);
+		}, (m1, m2) -> {
+			m2.forEach((k, l) -> m1.merge(k, l, (l1, l2) -> {
+				l1.addAll(l2);
+				return l1;
+			}));
+			return m1;
+		});
+	}
+
+	/**
+	 * @param maxCards Games longer than this are counted in the last bin.
+	 * @return A collector returning an histogram of game lengths, where element i
+	 *         is the number of non-infinite games where i cards were played.
+	 */
+	public static Collector<GameStats, ?, long[]> histogram(int maxCards) {
+		return Collector.of(() -> new long[maxCards + 1], (h, s) -> {
+			if (!s.isInfinite())
+				h[Math.min(s.getCardsPlayed(), maxCards)]++;
+		}, (h1, h2) -> {
+			for (int i = 0; i < h1.length; ++i)
+				h1[i] += h2[i];
+			return h1;
+		});
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.List;
+
+/**
+ * Receives events while a game is played by {@link Player}. All methods do
+ * nothing by default.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+public interface GameListener {
+
+	/**
+	 * Invoked when the game starts, after cards have been dealt. Uninteresting
+	 * games are not played, so for them only {@link #gameOver(GameStats)} is
+	 * invoked.
+	 * 
+	 * @param deck  The deck for this game.
+	 * @param hand0 Read-only view of cards in the hand of player 0, first card is
+	 *              the next to be played; it reflects the game status until the
+	 *              game is over.
+	 * @param hand1 Read-only view of cards in the hand of player 1.
+	 * @param pile  Read-only view of cards on the table, last card is the last
+	 *              played.
+	 */
+	default void gameStarted(Deck deck, List<Integer> hand0, List<Integer> hand1, List<Integer> pile) {
+	}
+
+	/**
+	 * Invoked before a player plays a card, including the last turn when the
+	 * player has no more cards and loses the game.
+	 * 
+	 * @param stats  Statistics of the game so far.
+	 * @param player The player who has to play (0-1 - 0 being the player that
+	 *               starts the game).
+	 */
+	default void turnStarted(GameStats stats, int player) {
+	}
+
+	/**
+	 * Invoked after a card has been played.
+	 * 
+	 * @param stats   Statistics of the game so far.
+	 * @param player  The player who played the card.
+	 * @param card    The card played (0 for a normal card, 1-3 for a penalty card).
+	 * @param penalty Cards the player to move next still has to play to respond
+	 *                to a penalty card (0 if none).
+	 */
+	default void cardPlayed(GameStats stats, int player, int card, int penalty) {
+	}
+
+	/**
+	 * Invoked after a "penalty card" (aces, 2s & 3s) has been played, right after
+	 * {@link #cardPlayed(GameStats, int, int, int)}.
+	 * 
+	 * @param stats  Statistics of the game so far.
+	 * @param player The player who played the card.
+	 * @param card   The card played (1-3).
+	 */
+	default void penaltyCardPlayed(GameStats stats, int player, int card) {
+	}
+
+	/**
+	 * Invoked when a player wins the cards on the table.
+	 * 
+	 * @param stats  Statistics of the game so far.
+	 * @param player The player who won the hand.
+	 * @param cards  Number of cards won.
+	 */
+	default void handWon(GameStats stats, int player, int cards) {
+	}
+
+	/**
+	 * Invoked when the position at the end of a hand is recorded to detect
+	 * infinite games.
+	 * 
+	 * @param stats    Statistics of the game so far.
+	 * @param player   The player who has to play next.
+	 * @param repeated True if the position was already recorded, which makes this
+	 *                 an infinite game.
+	 */
+	default void positionRecorded(GameStats stats, int player, boolean repeated) {
+	}
+
+	/**
+	 * Invoked when the game is over, either because a player lost, or because the
+	 * game was found to be infinite or uninteresting.
+	 * 
+	 * @param stats Final statistics of the game.
+	 */
+	default void gameOver(GameStats stats) {
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints game moves; for each turn it prints number of cards played so far,
+ * the player to move, the hand of the player to move, the hand of the other
+ * player, and the cards on the table.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class GamePrinter implements GameListener {
+
+	private final PrintStream out;
+
+	private List<Integer> hand0, hand1, pile;
+
+	/**
+	 * @param out Stream where game moves are printed.
+	 */
+	public GamePrinter(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void gameStarted(Deck deck, List<Integer> hand0, List<Integer> hand1, List<Integer> pile) {
+		this.hand0 = hand0;
+		this.hand1 = hand1;
+		this.pile = pile;
+	}
+
+	@Override
+	public void turnStarted(GameStats stats, int player) {
+		if (player == 0)
+			out.println(stats.getCardsPlayed() + ": " + player + " > " + hand0 + " - " + hand1 + " - " + pile);
+		else
+			out.println(stats.getCardsPlayed() + ": " + player + " > " + hand1 + " - " + hand0 + " - " + pile);
+	}
+}
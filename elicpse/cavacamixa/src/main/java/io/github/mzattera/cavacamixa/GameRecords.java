@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import io.github.mzattera.util.FileUtil;
+
+/**
+ * Keeps track of the longest game and of infinite games found, reporting and
+ * saving them as they are found.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class GameRecords {
+
+	private final File saveFolder;
+
+	private final String longestFileName;
+
+	private volatile GameStats longestGame = null;
+
+	/**
+	 * 
+	 * @param saveFolder      Folder where to save longest and infinite games.
+	 * @param longestFileName Name of the file where longest game is saved.
+	 */
+	public GameRecords(File saveFolder, String longestFileName) {
+		this.saveFolder = saveFolder;
+		this.longestFileName = longestFileName;
+	}
+
+	/**
+	 * @return The longest non-infinite game so far, or null if no game has been
+	 *         played yet.
+	 */
+	public GameStats getLongestGame() {
+		return longestGame;
+	}
+
+	/**
+	 * Sets longest game so far (e.g. when resuming from a check point).
+	 */
+	public synchronized void setLongestGame(GameStats stats) {
+		longestGame = stats;
+	}
+
+	/**
+	 * This can be used to avoid calling {@link #onFinish(GameStats)} (which is
+	 * synchronized) for games that are not worth reporting.
+	 * 
+	 * @return True if given game is infinite or at least as long as the longest
+	 *         game so far.
+	 */
+	public boolean isCandidate(GameStats stats) {
+		GameStats l = longestGame;
+		return stats.isInfinite() || (l == null) || (stats.getCardsPlayed() >= l.getCardsPlayed());
+	}
+
+	/**
+	 * Same as {@link #isCandidate(GameStats)}, for games whose statistics have not
+	 * been created yet.
+	 */
+	public boolean isCandidate(GameResult result) {
+		GameStats l = longestGame;
+		return result.isInfinite() || (l == null) || (result.getCardsPlayed() >= l.getCardsPlayed());
+	}
+
+	/**
+	 * Invoked when a game is finished; reports and saves it, if it is infinite or
+	 * the longest so far.
+	 * 
+	 * @param stats Game statistics.
+	 * @return True if the game is infinite or the longest so far.
+	 * @throws IOException If the longest game cannot be saved.
+	 */
+	public synchronized boolean onFinish(GameStats stats) throws IOException {
+
+		if (stats.isInfinite()) {
+			// Found an infinite game
+			System.out.println("=== INFINITE GAME FOUND!!! ========================");
+			System.out.println(stats.toString());
+			System.out.println("===================================================");
+			try {
+				FileUtil.writeFile(new File(saveFolder, "cavacamixa_infinite_game" + UUID.randomUUID() + ".txt"),
+						stats.toString());
+			} catch (IOException e) {
+				System.err.println("Cannot save, continuing...");
+			}
+			return true;
+		}
+
+		if ((longestGame != null) && (stats.getCardsPlayed() < longestGame.getCardsPlayed()))
+			return false;
+
+		longestGame = stats;
+		System.out.println("Found longer game: " + stats);
+		FileUtil.writeFile(new File(saveFolder, longestFileName), stats.toString());
+		return true;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+/**
+ * Results of a game, as filled by {@link Engine#play(Deck, GameResult)}.
+ * Unlike {@link GameStats}, this does not reference the deck and it is meant
+ * to be reused for many games (e.g. one instance for each thread), so playing
+ * games does not allocate memory; {@link #toStats(Deck)} creates statistics
+ * only for the games worth reporting.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class GameResult {
+
+	private int cardsPlayed, penaltyCardsPlayed, hands, losingPlayer, winningPlayer;
+
+	private boolean infinite;
+
+	private CycleInfo cycle;
+
+	/**
+	 * Sets results of a game.
+	 *
+	 * @param cardsPlayed        Number of cards played.
+	 * @param penaltyCardsPlayed Number of "penalty cards" played.
+	 * @param hands              Number of "hands" won.
+	 * @param losingPlayer       The player who lost.
+	 * @param winningPlayer      The player who won, -1 if this is the player who
+	 *                           did not lose.
+	 * @param cycle              Description of the loop for infinite games, null
+	 *                           otherwise.
+	 */
+	void set(int cardsPlayed, int penaltyCardsPlayed, int hands, int losingPlayer, int winningPlayer,
+			CycleInfo cycle) {
+		this.cardsPlayed = cardsPlayed;
+		this.penaltyCardsPlayed = penaltyCardsPlayed;
+		this.hands = hands;
+		this.losingPlayer = losingPlayer;
+		this.winningPlayer = winningPlayer;
+		this.infinite = (cycle != null);
+		this.cycle = cycle;
+	}
+
+	/**
+	 * Sets results of a game from its statistics.
+	 */
+	void set(GameStats stats) {
+		set(stats.getCardsPlayed(), stats.getPenaltyCardsPlayed(), stats.getHands(), stats.getLosingPlayer(),
+				stats.getWinningPlayer(), stats.getCycle());
+		infinite = stats.isInfinite();
+	}
+
+	/**
+	 * Sets results for an "uninteresting" game, which is not played.
+	 */
+	void uninteresting() {
+		set(0, 0, 0, 0, -1, null);
+	}
+
+	/**
+	 * @return Number of cards played.
+	 */
+	public int getCardsPlayed() {
+		return cardsPlayed;
+	}
+
+	/**
+	 * @return Number of "penalty cards" played.
+	 */
+	public int getPenaltyCardsPlayed() {
+		return penaltyCardsPlayed;
+	}
+
+	/**
+	 * @return Number of "hands" won.
+	 */
+	public int getHands() {
+		return hands;
+	}
+
+	/**
+	 * @return The player who lost.
+	 */
+	public int getLosingPlayer() {
+		return losingPlayer;
+	}
+
+	/**
+	 * @return The player who won.
+	 */
+	public int getWinningPlayer() {
+		if (winningPlayer >= 0)
+			return winningPlayer;
+		return (losingPlayer == 0 ? 1 : 0);
+	}
+
+	/**
+	 * @return True if this is an infinite game.
+	 */
+	public boolean isInfinite() {
+		return infinite;
+	}
+
+	/**
+	 * @return True if this game is "uninteresting" and it was not played.
+	 */
+	public boolean isUninteresting() {
+		return cardsPlayed == 0;
+	}
+
+	/**
+	 * @return Description of the loop, for infinite games; null otherwise or if
+	 *         not known.
+	 */
+	public CycleInfo getCycle() {
+		return cycle;
+	}
+
+	/**
+	 * @param deck The deck used for the game; this must not be modified
+	 *             afterwards.
+	 * @return Statistics for the game.
+	 */
+	public GameStats toStats(Deck deck) {
+		GameStats stats = new GameStats(deck, cardsPlayed, penaltyCardsPlayed, hands, losingPlayer, infinite);
+		if (winningPlayer >= 0)
+			stats.playerWon(winningPlayer);
+		if (cycle != null)
+			stats.cycleFound(cycle);
+		return stats;
+	}
+
+	@Override
+	public String toString() {
+		return "GameResult [IsUninteresting? " + (isUninteresting() ? "yes" : "no") + ", CardsPlayed=" + cardsPlayed
+				+ ", PenaltyCardsPlayed=" + penaltyCardsPlayed + ", Hands=" + hands + ", LosingPlayer="
+				+ losingPlayer + ", Infinite=" + infinite + "]";
+	}
+}
@@ -100,14 +100,30 @@ public class GameStats {
 		return losingPlayer;
 	}
 
+	private int winningPlayer = -1;
+
 	/**
 	 * 
 	 * @return the winning player (0-1 - 0 being the player that starts the game).
 	 */
 	public int getWinningPlayer() {
+		if (winningPlayer >= 0)
+			return winningPlayer;
 		return (losingPlayer == 0 ? 1 : 0);
 	}
 
+	/**
+	 * Signals that a player won the game. This is needed only for games with more
+	 * than two players, where the losing player is the first player who ran out of
+	 * cards; with two players the winner is the player who did not lose.
+	 * 
+	 * @param player the player who won the game.
+	 * @return the winning player.
+	 */
+	public int playerWon(int player) {
+		return winningPlayer = player;
+	}
+
 	/**
 	 * Signals that a player lost the game.
 	 * 
@@ -139,6 +155,28 @@ public class GameStats {
 		return infinite = v;
 	}
 
+	private CycleInfo cycle = null;
+
+	/**
+	 * 
+	 * @return Description of the loop, for infinite games; null otherwise or if
+	 *         not known.
+	 */
+	public CycleInfo getCycle() {
+		return cycle;
+	}
+
+	/**
+	 * Signals that the game entered a loop, making it an infinite game.
+	 * 
+	 * @param cycle Description of the loop.
+	 * @return cycle
+	 */
+	public CycleInfo cycleFound(CycleInfo cycle) {
+		infinite = true;
+		return this.cycle = cycle;
+	}
+
 	/**
 	 * 
 	 * @return True if this game is "uninteresting", meaning one of the two players
@@ -153,10 +191,32 @@ public class GameStats {
 		this.deck = cfg;
 	}
 
+	/**
+	 * Restores statistics of a game that has already been played (e.g. from a
+	 * check point).
+	 * 
+	 * @param deck               The deck for this game.
+	 * @param cardsPlayed        Number of cards played.
+	 * @param penaltyCardsPlayed Number of "penalty cards" (aces, 2s & 3s) played.
+	 * @param hands              Number of "hands" won.
+	 * @param losingPlayer       The player who lost (0-1 - 0 being the player that
+	 *                           starts the game).
+	 * @param infinite           True if this is an infinite game.
+	 */
+	public GameStats(Deck deck, int cardsPlayed, int penaltyCardsPlayed, int hands, int losingPlayer,
+			boolean infinite) {
+		this.deck = deck;
+		this.cardsPlayed = cardsPlayed;
+		this.penaltyCardsPlayed = penaltyCardsPlayed;
+		this.hands = hands;
+		this.losingPlayer = losingPlayer;
+		this.infinite = infinite;
+	}
+
 	@Override
 	public String toString() {
 		return "GameStats [Deck=" + deck + ", IsUninteresting? " + (isUninteresting() ? "yes" : "no") + ", CardsPlayed="
 				+ cardsPlayed + ", PenaltyCardsPlayed=" + penaltyCardsPlayed + ", Hands=" + hands + ", WinningPlayer="
-				+ getWinningPlayer() + "]";
+				+ getWinningPlayer() + ((cycle == null) ? "" : ", Cycle=" + cycle) + "]";
 	}
 }
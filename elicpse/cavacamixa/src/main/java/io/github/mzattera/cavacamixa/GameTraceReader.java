@@ -0,0 +1,263 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads traces written by {@link GameTraceWriter} and replays the games they
+ * contain, notifying moves to a {@link GameListener} as {@link Player} would
+ * do. Games are rebuilt from the moves in the trace, which are checked for
+ * consistency with the game rules; they are not played again.
+ *
+ * Notice that {@link GameListener#positionRecorded(GameStats, int, boolean)} is
+ * not invoked when replaying a trace.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class GameTraceReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	private final GameTraceWriter.Format format;
+
+	// Last record read
+	private char type;
+	private final int[] fields = new int[6];
+	private Deck deck;
+
+	/**
+	 * Opens a trace file, detecting its format.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public GameTraceReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		buf.limit(0);
+
+		if (!fill(GameTraceWriter.MAGIC.length))
+			throw new IOException("Invalid trace file: " + file);
+		if (buf.get(0) == GameTraceWriter.MAGIC[0]) {
+			format = GameTraceWriter.Format.BINARY;
+			for (byte b : GameTraceWriter.MAGIC)
+				if (readByte() != b)
+					throw new IOException("Invalid trace file: " + file);
+			if (readByte() != GameTraceWriter.VERSION)
+				throw new IOException("Unsupported trace version: " + file);
+		} else {
+			format = GameTraceWriter.Format.CSV;
+			String header = readLine();
+			if ((header == null) || !header.equals(GameTraceWriter.CSV_HEADER + GameTraceWriter.VERSION))
+				throw new IOException("Invalid trace file: " + file);
+		}
+	}
+
+	/**
+	 * Replays next game in the trace.
+	 *
+	 * @param listener Listener notified of game events; can be null.
+	 * @return Statistics for the replayed game, or null if there are no more games
+	 *         in the trace.
+	 * @throws IOException If the trace cannot be read or it is inconsistent.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public GameStats replay(GameListener listener) throws IOException {
+		if (listener == null)
+			listener = new GameListener() {
+			};
+
+		if (!nextRecord())
+			return null;
+		if (type != 'G')
+			throw new IOException("Game record expected");
+
+		GameStats stats = new GameStats(deck);
+		List<Integer> cards = deck.toList();
+		List<Integer>[] hand = new List[2];
+		hand[0] = new ArrayList<>(cards.subList(0, cards.size() / 2));
+		hand[1] = new ArrayList<>(cards.subList(cards.size() / 2, cards.size()));
+		List<Integer> pile = new ArrayList<>(cards.size());
+		boolean started = false;
+		int penalty = 0;
+
+		while (true) {
+			if (!nextRecord())
+				throw new IOException("Unexpected end of trace");
+
+			if (type == 'M') {
+				int player = fields[0], card = fields[1], p = fields[5];
+				if (!started) {
+					listener.gameStarted(deck, Collections.unmodifiableList(hand[0]),
+							Collections.unmodifiableList(hand[1]), Collections.unmodifiableList(pile));
+					started = true;
+				}
+				listener.turnStarted(stats, player);
+
+				if (hand[player].isEmpty() || (hand[player].get(0) != card))
+					throw new IOException("Inconsistent trace at card " + stats.getCardsPlayed());
+				pile.add(hand[player].remove(0));
+				stats.cardPlayed();
+				if (card != 0)
+					stats.penaltyCardPlayed();
+				if ((pile.size() != fields[2]) || (hand[0].size() != fields[3]) || (hand[1].size() != fields[4]))
+					throw new IOException("Inconsistent trace at card " + stats.getCardsPlayed());
+
+				listener.cardPlayed(stats, player, card, p);
+				if (card != 0)
+					listener.penaltyCardPlayed(stats, player, card);
+
+				if ((card == 0) && (penalty != 0) && (p == 0)) { // Player lost this hand
+					int winner = (player + 1) & 1;
+					int won = pile.size();
+					hand[winner].addAll(pile);
+					pile.clear();
+					stats.handWon();
+					listener.handWon(stats, winner, won);
+				}
+				penalty = p;
+
+			} else if (type == 'E') {
+				if (fields[4] != 0) {
+					stats.isInfinite(true);
+				} else if (stats.getCardsPlayed() > 0) {
+					listener.turnStarted(stats, fields[3]);
+					if (!hand[fields[3]].isEmpty())
+						throw new IOException("Inconsistent trace: losing player still has cards");
+					stats.playerLost(fields[3]);
+				}
+				if ((stats.getCardsPlayed() != fields[0]) || (stats.getPenaltyCardsPlayed() != fields[1])
+						|| (stats.getHands() != fields[2]))
+					throw new IOException("Inconsistent trace: statistics do not match moves for deck " + deck);
+				listener.gameOver(stats);
+				return stats;
+
+			} else {
+				throw new IOException("Unexpected record in trace: " + type);
+			}
+		}
+	}
+
+	/**
+	 * Reads next record.
+	 *
+	 * @return False if end of trace has been reached.
+	 */
+	private boolean nextRecord() throws IOException {
+		if (format == GameTraceWriter.Format.BINARY) {
+			if (!fill(1))
+				return false;
+			type = (char) readByte();
+			switch (type) {
+			case 'G':
+				int len = readByte();
+				int[] cards = new int[len];
+				for (int i = 0; i < len; ++i)
+					cards[i] = readByte();
+				deck = new Deck(cards);
+				break;
+			case 'M':
+				for (int i = 0; i < 6; ++i)
+					fields[i] = readByte();
+				break;
+			case 'E':
+				for (int i = 0; i < 3; ++i)
+					fields[i] = readInt();
+				fields[3] = readByte();
+				fields[4] = readByte();
+				break;
+			default:
+				throw new IOException("Unexpected record in trace: " + type);
+			}
+		} else {
+			String line = readLine();
+			if (line == null)
+				return false;
+			String[] s = line.split(",");
+			type = s[0].charAt(0);
+			if (type == 'G') {
+				deck = new Deck(s[1]);
+			} else {
+				for (int i = 1; i < s.length; ++i)
+					fields[i - 1] = Integer.parseInt(s[i]);
+			}
+		}
+		return true;
+	}
+
+	private int readByte() throws IOException {
+		if (!fill(1))
+			throw new IOException("Unexpected end of trace");
+		return buf.get();
+	}
+
+	private int readInt() throws IOException {
+		if (!fill(4))
+			throw new IOException("Unexpected end of trace");
+		return buf.getInt();
+	}
+
+	/**
+	 * @return Next non-empty line in the file, or null at end of file.
+	 */
+	private String readLine() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		while (fill(1)) {
+			char c = (char) buf.get();
+			if (c == '\n') {
+				if (sb.length() > 0)
+					return sb.toString();
+			} else if (c != '\r') {
+				sb.append(c);
+			}
+		}
+		return (sb.length() > 0) ? sb.toString() : null;
+	}
+
+	/**
+	 * Makes sure at least given number of bytes can be read from the buffer.
+	 *
+	 * @return False if the end of file was reached before.
+	 */
+	private boolean fill(int bytes) throws IOException {
+		while (buf.remaining() < bytes) {
+			buf.compact();
+			int n = channel.read(buf);
+			buf.flip();
+			if (n < 0)
+				return buf.remaining() >= bytes;
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a compact trace of one or more games into a file, so that games can
+ * be studied offline without playing them again. Traces can be read back with
+ * {@link GameTraceReader}.
+ *
+ * A trace is a sequence of records; each game starts with a "game" record
+ * containing the deck, followed by one "move" record for each card played and
+ * an "end" record with final statistics.
+ *
+ * Binary format (big-endian):
+ * <ul>
+ * <li>file header: "CVMX" followed by format version (1 byte).</li>
+ * <li>game: 'G', deck length (1 byte), one byte per card in the deck.</li>
+ * <li>move: 'M', player, card, pile size, hand 0 size, hand 1 size, penalty
+ * (1 byte each).</li>
+ * <li>end: 'E', cards played, penalty cards played, hands (4 bytes each),
+ * losing player, infinite flag (1 byte each).</li>
+ * </ul>
+ *
+ * CSV format has same records, one per line, with fields separated by commas:
+ *
+ * <pre>
+ * # cavacamixa trace,1
+ * G,&lt;deck&gt;
+ * M,&lt;player&gt;,&lt;card&gt;,&lt;pile&gt;,&lt;hand0&gt;,&lt;hand1&gt;,&lt;penalty&gt;
+ * E,&lt;cards&gt;,&lt;penaltyCards&gt;,&lt;hands&gt;,&lt;losingPlayer&gt;,&lt;infinite (0-1)&gt;
+ * </pre>
+ *
+ * Sizes in move records are taken right after the card is played, before the
+ * cards on the table are won by a player; penalty is the number of cards the
+ * next player still has to play to respond to a penalty card.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class GameTraceWriter implements GameListener, Closeable {
+
+	/**
+	 * Format of the trace file.
+	 */
+	public enum Format {
+		BINARY, CSV;
+
+		/**
+		 * @return The format to use for given file, based on its extension (".csv"
+		 *         for CSV, binary otherwise).
+		 */
+		public static Format forFile(File file) {
+			return file.getName().toLowerCase().endsWith(".csv") ? CSV : BINARY;
+		}
+	}
+
+	static final byte[] MAGIC = { 'C', 'V', 'M', 'X' };
+
+	static final String CSV_HEADER = "# cavacamixa trace,";
+
+	static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Format format;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	private List<Integer> hand0, hand1, pile;
+
+	// True if the game record has been written for current game
+	private boolean started = false;
+
+	/**
+	 * Creates a trace file; format is chosen based on file extension.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public GameTraceWriter(File file) throws IOException {
+		this(file, Format.forFile(file));
+	}
+
+	/**
+	 * Creates a trace file.
+	 *
+	 * @param file
+	 * @param format
+	 * @throws IOException
+	 */
+	public GameTraceWriter(File file, Format format) throws IOException {
+		this.format = format;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		if (format == Format.BINARY) {
+			buf.put(MAGIC).put((byte) VERSION);
+		} else {
+			putText(CSV_HEADER);
+			putNumber(VERSION);
+			buf.put((byte) '\n');
+		}
+	}
+
+	@Override
+	public void gameStarted(Deck deck, List<Integer> hand0, List<Integer> hand1, List<Integer> pile) {
+		this.hand0 = hand0;
+		this.hand1 = hand1;
+		this.pile = pile;
+		writeGame(deck);
+	}
+
+	@Override
+	public void cardPlayed(GameStats stats, int player, int card, int penalty) {
+		ensureCapacity(32);
+		if (format == Format.BINARY) {
+			buf.put((byte) 'M').put((byte) player).put((byte) card).put((byte) pile.size())
+					.put((byte) hand0.size()).put((byte) hand1.size()).put((byte) penalty);
+		} else {
+			buf.put((byte) 'M');
+			putField(player);
+			putField(card);
+			putField(pile.size());
+			putField(hand0.size());
+			putField(hand1.size());
+			putField(penalty);
+			buf.put((byte) '\n');
+		}
+	}
+
+	@Override
+	public void gameOver(GameStats stats) {
+		if (!started) // Uninteresting games are not started
+			writeGame(stats.getDeck());
+
+		ensureCapacity(64);
+		if (format == Format.BINARY) {
+			buf.put((byte) 'E').putInt(stats.getCardsPlayed()).putInt(stats.getPenaltyCardsPlayed())
+					.putInt(stats.getHands()).put((byte) stats.getLosingPlayer())
+					.put((byte) (stats.isInfinite() ? 1 : 0));
+		} else {
+			buf.put((byte) 'E');
+			putField(stats.getCardsPlayed());
+			putField(stats.getPenaltyCardsPlayed());
+			putField(stats.getHands());
+			putField(stats.getLosingPlayer());
+			putField(stats.isInfinite() ? 1 : 0);
+			buf.put((byte) '\n');
+		}
+		started = false;
+	}
+
+	private void writeGame(Deck deck) {
+		ensureCapacity(deck.cards.length + 16);
+		if (format == Format.BINARY) {
+			buf.put((byte) 'G').put((byte) deck.cards.length);
+			for (int c : deck.cards)
+				buf.put((byte) c);
+		} else {
+			buf.put((byte) 'G').put((byte) ',');
+			putText(deck.toString());
+			buf.put((byte) '\n');
+		}
+		started = true;
+	}
+
+	private void putField(int n) {
+		buf.put((byte) ',');
+		putNumber(n);
+	}
+
+	// Writes a non-negative number in ASCII without creating strings
+	private void putNumber(int n) {
+		if (n >= 10)
+			putNumber(n / 10);
+		buf.put((byte) ('0' + (n % 10)));
+	}
+
+	private void putText(String s) {
+		buf.put(s.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	// Flushes the buffer if it has not enough room for a record
+	private void ensureCapacity(int bytes) {
+		if (buf.remaining() < bytes)
+			flush();
+	}
+
+	/**
+	 * Writes buffered records to the file.
+	 */
+	public void flush() {
+		try {
+			buf.flip();
+			while (buf.hasRemaining())
+				channel.write(buf);
+			buf.clear();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			channel.close();
+		}
+	}
+}
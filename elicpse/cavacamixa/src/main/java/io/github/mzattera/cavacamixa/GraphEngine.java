@@ -0,0 +1,447 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Engine for two players that remembers the games it played, as a graph of
+ * positions reached at the start of the game and each time a hand is won.
+ *
+ * Each position (seen from the player to move) is followed by exactly one
+ * position, or by the end of the game; the result of a game from a position
+ * does not depend on how the position was reached. For each position the
+ * engine stores the next position and the cards played to reach it; once a
+ * game is over, the remaining length of the game (or the distance from the
+ * loop, for infinite games) is computed for all positions in the game, going
+ * backwards from its end. A new game is then played only until it reaches a
+ * position already seen.
+ *
+ * With Italian rules it plays exactly as {@link Player}. Positions are kept in
+ * a {@link PositionSet} and primitive arrays; when the graph grows beyond a
+ * given number of positions it is cleared, to bound memory used.
+ *
+ * Besides playing games, the engine can be queried for the remaining length of
+ * the game from any position in the graph and whether the position is part of
+ * a loop; see {@link StateGraphSearch}.
+ *
+ * This is not thread-safe.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+final class GraphEngine implements Engine {
+
+	/**
+	 * Default maximum number of positions in the graph; with Italian rules, this
+	 * takes about 40 MB.
+	 */
+	public static final int MAX_POSITIONS = 1 << 18;
+
+	// States of a position
+	private static final byte UNKNOWN = 0; // Next position not known yet
+	private static final byte VISITING = 1; // In the game being played
+	private static final byte FINITE = 2; // Game from this position ends
+	private static final byte INFINITE = 3; // Game from this position is infinite
+
+	// Flags of a position
+	private static final byte OTHER = 1; // Player to move in next position (or losing player) is the other one
+	private static final byte OTHER_LOSES = 2; // Game from this position is lost by the player not moving
+
+	private final int deckSize;
+
+	// Cards dealt to player 0
+	private final int handSize;
+
+	// Bits needed to store a card
+	private final int cardBits;
+
+	private final int maxPositions;
+
+	// Ring buffers for the two hands
+	private final int mask;
+	private final int[][] hand;
+	private final int[] head = new int[2];
+	private final int[] len = new int[2];
+
+	private final int[] pile;
+
+	private final PositionSet positions;
+	private final long[] key;
+
+	// For each position, by order it was added to positions
+
+	// Next position, -1 if the game ends
+	private int[] next = new int[1024];
+
+	// Cards and penalty cards played to reach next position
+	private short[] cards = new short[1024], penalties = new short[1024];
+
+	private byte[] state = new byte[1024], flags = new byte[1024];
+
+	// For finite games: cards, penalty cards and hands till the end of the game;
+	// for infinite games: same, till the first position in the loop, which is
+	// stored in loop[]
+	private int[] remainingCards = new int[1024], remainingPenalties = new int[1024],
+			remainingHands = new int[1024];
+	private int[] loop = new int[1024];
+
+	// Positions of the game being played
+	private int[] path = new int[1024];
+	private int pathSize;
+
+	// Position last game started from, -1 if it was not played
+	private int start = -1;
+
+	// Hands actually played, and times the graph was cleared
+	private long handsPlayed = 0;
+	private int clears = 0;
+
+	private final GameResult result = new GameResult();
+
+	GraphEngine(Rules rules) {
+		this(rules, MAX_POSITIONS);
+	}
+
+	/**
+	 * @param rules        Rules of the games to play.
+	 * @param maxPositions Maximum number of positions in the graph.
+	 */
+	GraphEngine(Rules rules, int maxPositions) {
+		if (rules.getPlayers() != 2)
+			throw new IllegalArgumentException("Rules must be for two players.");
+		if (maxPositions <= 0)
+			throw new IllegalArgumentException("Maximum number of positions must be positive.");
+		deckSize = rules.getDeckSize();
+		handSize = rules.getHandSize(0);
+		cardBits = 32 - Integer.numberOfLeadingZeros(rules.getMaxPenalty());
+		this.maxPositions = maxPositions;
+
+		int capacity = Integer.highestOneBit(deckSize) << 1;
+		mask = capacity - 1;
+		hand = new int[2][capacity];
+		pile = new int[deckSize];
+
+		key = new long[PositionSet.words(8 + deckSize * cardBits)];
+		positions = new PositionSet(key.length);
+	}
+
+	/**
+	 * @return Number of positions in the graph.
+	 */
+	int size() {
+		return positions.size();
+	}
+
+	/**
+	 * @return Position the last game started from, or -1 if the game was not
+	 *         played because it is uninteresting. This is valid until next game
+	 *         is played.
+	 */
+	int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return Cards still to be played in the game from given position; for
+	 *         infinite games, cards played before entering the loop.
+	 */
+	int getRemainingCards(int p) {
+		return remainingCards[p];
+	}
+
+	/**
+	 * @return Hands still to be won in the game from given position; for infinite
+	 *         games, hands won before entering the loop.
+	 */
+	int getRemainingHands(int p) {
+		return remainingHands[p];
+	}
+
+	/**
+	 * @return True if the game from given position is infinite.
+	 */
+	boolean isInfinite(int p) {
+		return state[p] == INFINITE;
+	}
+
+	/**
+	 * @return True if given position is part of a loop.
+	 */
+	boolean isOnCycle(int p) {
+		return (state[p] == INFINITE) && (loop[p] == p);
+	}
+
+	/**
+	 * @return Given position, as cards of the player to move, a dash, and cards of
+	 *         the other player.
+	 */
+	String toString(int p) {
+		positions.get(p, key);
+		return TwoPlayerEngine.toString(key, deckSize, cardBits, new StringBuilder());
+	}
+
+	/**
+	 * @return Number of hands played since this engine was created; hands whose
+	 *         result was found in the graph are not counted.
+	 */
+	long getHandsPlayed() {
+		return handsPlayed;
+	}
+
+	/**
+	 * @return Number of times the graph was cleared because it grew too large.
+	 */
+	int getClears() {
+		return clears;
+	}
+
+	@Override
+	public GameStats play(Deck d) {
+		play(d, result);
+		return result.toStats(d);
+	}
+
+	@Override
+	public void play(Deck d, GameResult result) {
+		int[] c = d.cards;
+
+		// Check whether one player has only 0; in this case we skip, as we know the
+		// game will be shorter than the deck
+		int i = 0;
+		for (; i < handSize; ++i)
+			if (c[i] != 0)
+				break;
+		if (i == handSize) {
+			start = -1;
+			result.uninteresting();
+			return;
+		}
+		for (i = handSize; i < deckSize; ++i)
+			if (c[i] != 0)
+				break;
+		if (i == deckSize) {
+			start = -1;
+			result.uninteresting();
+			return;
+		}
+
+		if (positions.size() >= maxPositions) {
+			positions.clear();
+			clears++;
+		}
+
+		System.arraycopy(c, 0, hand[0], 0, handSize);
+		System.arraycopy(c, handSize, hand[1], 0, deckSize - handSize);
+		head[0] = head[1] = 0;
+		len[0] = handSize;
+		len[1] = deckSize - handSize;
+
+		// Plays hands until the game ends or reaches a position already seen
+		start = position(0);
+		int p = start;
+		int player = 0;
+		pathSize = 0;
+		while (state[p] == UNKNOWN) {
+			state[p] = VISITING;
+			if (pathSize == path.length)
+				path = Arrays.copyOf(path, pathSize * 2);
+			path[pathSize++] = p;
+
+			player = playHand(p, player);
+			if (player < 0)
+				break;
+			int n = position(player); // This can grow arrays
+			next[p] = n;
+			p = n;
+		}
+
+		// Solves positions in the game, backwards
+		int end = pathSize;
+		if ((player >= 0) && (state[p] == VISITING)) { // Game entered a loop
+			while (path[--end] != p)
+				;
+			for (i = end; i < pathSize; ++i) {
+				int q = path[i];
+				state[q] = INFINITE;
+				remainingCards[q] = remainingPenalties[q] = remainingHands[q] = 0;
+				loop[q] = q;
+			}
+		}
+		for (i = end - 1; i >= 0; --i)
+			solve(path[i]);
+		handsPlayed += (player < 0) ? pathSize - 1 : pathSize; // Last hand of a game is not won
+
+		if (state[start] == FINITE) {
+			result.set(remainingCards[start], remainingPenalties[start], remainingHands[start],
+					((flags[start] & OTHER_LOSES) == 0) ? 0 : 1, -1, null);
+		} else {
+			CycleInfo cycle = cycle(start);
+			result.set(remainingCards[start] + cycle.getPeriodCards(),
+					remainingPenalties[start] + cycle.getPeriodPenaltyCards(),
+					remainingHands[start] + cycle.getPeriodHands(), 0, -1, cycle);
+		}
+	}
+
+	/**
+	 * Plays cards until a hand is won or the game is over, storing cards played
+	 * for given position.
+	 *
+	 * @param p      Position the hand starts from.
+	 * @param player Player to move in the position.
+	 * @return Player to move after the hand is won, or -1 if the game is over.
+	 */
+	private int playHand(int p, int player) {
+		int mover = player;
+		int penalty = 0;
+		int pileSize = 0;
+		int cardsPlayed = 0, penaltyCardsPlayed = 0;
+
+		while (true) {
+
+			if (len[player] == 0) { // Game over
+				next[p] = -1;
+				cards[p] = (short) cardsPlayed;
+				penalties[p] = (short) penaltyCardsPlayed;
+				flags[p] = (player == mover) ? 0 : OTHER;
+				return -1;
+			}
+
+			// Play card
+			int[] h = hand[player];
+			int played = h[head[player]];
+			head[player] = (head[player] + 1) & mask;
+			len[player]--;
+			pile[pileSize++] = played;
+			cardsPlayed++;
+
+			if (played != 0) { // Played a "penalty card"
+				penalty = played;
+				penaltyCardsPlayed++;
+				player ^= 1;
+			} else if (penalty != 0) { // Player was responding to a penalty card
+				if (--penalty == 0) { // Player lost this hand
+					player ^= 1;
+					h = hand[player];
+					int tail = head[player] + len[player];
+					for (int j = 0; j < pileSize; ++j)
+						h[(tail + j) & mask] = pile[j];
+					len[player] += pileSize;
+
+					cards[p] = (short) cardsPlayed;
+					penalties[p] = (short) penaltyCardsPlayed;
+					flags[p] = (player == mover) ? 0 : OTHER;
+					return player;
+				}
+			} else { // Was not responding to a penalty
+				player ^= 1;
+			}
+		}
+	}
+
+	/**
+	 * Computes remaining length of the game from given position, once the game
+	 * from next position has been solved.
+	 */
+	private void solve(int p) {
+		int n = next[p];
+		if (n < 0) {
+			state[p] = FINITE;
+			remainingCards[p] = cards[p];
+			remainingPenalties[p] = penalties[p];
+			remainingHands[p] = 0;
+			if ((flags[p] & OTHER) != 0)
+				flags[p] |= OTHER_LOSES;
+			return;
+		}
+
+		state[p] = state[n];
+		remainingCards[p] = cards[p] + remainingCards[n];
+		remainingPenalties[p] = penalties[p] + remainingPenalties[n];
+		remainingHands[p] = 1 + remainingHands[n];
+		if (state[p] == INFINITE) {
+			loop[p] = loop[n];
+		} else if (((flags[p] & OTHER) != 0) != ((flags[n] & OTHER_LOSES) != 0)) {
+			// Losing player in next position is seen from its player to move
+			flags[p] |= OTHER_LOSES;
+		}
+	}
+
+	/**
+	 * Describes the loop reached by an infinite game from given position.
+	 */
+	private CycleInfo cycle(int start) {
+		List<String> p = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		int periodCards = 0, periodPenalties = 0;
+		int q = loop[start];
+		do {
+			positions.get(q, key);
+			p.add(TwoPlayerEngine.toString(key, deckSize, cardBits, sb));
+			periodCards += cards[q];
+			periodPenalties += penalties[q];
+			q = next[q];
+		} while (q != loop[start]);
+		return new CycleInfo(remainingHands[start], remainingCards[start], p.size(), periodCards, periodPenalties,
+				p);
+	}
+
+	/**
+	 * Finds current position, seen from the player to move, adding it to the
+	 * graph if it is new.
+	 *
+	 * @return Index of the position.
+	 */
+	private int position(int player) {
+		for (int i = 0; i < key.length; ++i)
+			key[i] = 0;
+		int offset = PositionSet.put(key, 0, len[player], 8);
+		offset = put(player, offset);
+		put(player ^ 1, offset);
+		int p = positions.add(key);
+		if (p >= 0)
+			return p;
+
+		p = positions.size() - 1;
+		if (p == next.length)
+			grow();
+		state[p] = UNKNOWN;
+		flags[p] = 0;
+		return p;
+	}
+
+	private int put(int player, int offset) {
+		int[] h = hand[player];
+		for (int i = 0, j = head[player]; i < len[player]; ++i, j = (j + 1) & mask)
+			offset = PositionSet.put(key, offset, h[j], cardBits);
+		return offset;
+	}
+
+	private void grow() {
+		int n = next.length * 2;
+		next = Arrays.copyOf(next, n);
+		cards = Arrays.copyOf(cards, n);
+		penalties = Arrays.copyOf(penalties, n);
+		state = Arrays.copyOf(state, n);
+		flags = Arrays.copyOf(flags, n);
+		remainingCards = Arrays.copyOf(remainingCards, n);
+		remainingPenalties = Arrays.copyOf(remainingPenalties, n);
+		remainingHands = Arrays.copyOf(remainingHands, n);
+		loop = Arrays.copyOf(loop, n);
+	}
+}
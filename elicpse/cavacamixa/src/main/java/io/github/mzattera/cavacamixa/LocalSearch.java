@@ -0,0 +1,331 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks for long games by local search: starting from some seed decks, it
+ * repeatedly changes the deck with moves that preserve the cards in it (swaps,
+ * rotations, moving a penalty card) and keeps the changes according to
+ * simulated annealing or tabu search rules. Several independent chains run in
+ * parallel.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class LocalSearch {
+
+	/**
+	 * Rule used to decide which moves are kept.
+	 */
+	public enum Strategy {
+		/**
+		 * A random move is kept if it makes the game longer, or with a probability
+		 * that decreases as the game gets shorter and as the search "cools down".
+		 */
+		ANNEALING,
+
+		/**
+		 * The best of some random moves is kept, unless it leads to a recently
+		 * visited deck.
+		 */
+		TABU
+	}
+
+	/**
+	 * Default seed deck: longest game known when this was written.
+	 */
+	public static final String DEFAULT_SEED = "00000000000000030023-00010001312200300021";
+
+	private static final String LONGEST_FILE_NAME = "cavacamixa_search_longest_game.txt";
+
+	/**
+	 * Initial temperature for annealing, in cards played.
+	 */
+	private static final double START_TEMPERATURE = 200.0;
+
+	/**
+	 * Temperature at which annealing restarts from the best deck of its chain.
+	 */
+	private static final double END_TEMPERATURE = 1.0;
+
+	/**
+	 * Number of moves to cool down from start to end temperature.
+	 */
+	private static final int COOLING_STEPS = 100_000;
+
+	/**
+	 * Moves evaluated at each step in tabu search.
+	 */
+	private static final int NEIGHBOURS = 16;
+
+	/**
+	 * Number of recently visited decks that tabu search will not visit again.
+	 */
+	private static final int TABU_SIZE = 1_000;
+
+	/**
+	 * Seconds between two reports.
+	 */
+	private static final int REPORT_INTERVAL = 60;
+
+	/**
+	 * One search chain.
+	 */
+	private class Chain implements Runnable {
+
+		private final int id;
+
+		private final SplittableRandom rnd;
+
+		private final Engine engine = Rules.ITALIAN.compile();
+		private final GameResult result = new GameResult();
+
+		private Deck current;
+		private int currentLength;
+
+		private volatile Deck best;
+		private volatile int bestLength;
+		private volatile long steps = 0;
+
+		// Recently visited decks (ranks), for tabu search
+		private final Deque<Long> tabuList = new ArrayDeque<>();
+		private final Set<Long> tabu = new HashSet<>();
+
+		/**
+		 * @param seed       Deck the chain starts from.
+		 * @param seedLength Length of the game for the seed deck.
+		 */
+		Chain(int id, Deck seed, int seedLength, SplittableRandom rnd) {
+			this.id = id;
+			this.rnd = rnd;
+			current = best = seed;
+			currentLength = bestLength = seedLength;
+		}
+
+		@Override
+		public void run() {
+			try {
+				double t = START_TEMPERATURE;
+				double cooling = Math.pow(END_TEMPERATURE / START_TEMPERATURE, 1.0 / COOLING_STEPS);
+				while (!stopped) {
+					if (strategy == Strategy.ANNEALING) {
+						Deck next = move(current);
+						int len = score(engine, result, next);
+						if ((len >= 0) && ((len >= currentLength)
+								|| (rnd.nextDouble() < Math.exp((len - currentLength) / t)))) {
+							current = next;
+							currentLength = len;
+						}
+						t *= cooling;
+						if (t < END_TEMPERATURE) { // Reheats, restarting from best deck
+							t = START_TEMPERATURE;
+							current = best;
+							currentLength = bestLength;
+						}
+					} else {
+						Deck next = null;
+						int nextLength = -1;
+						for (int i = 0; i < NEIGHBOURS; ++i) {
+							Deck d = move(current);
+							int len = score(engine, result, d);
+							if ((len > nextLength) && ((len > bestLength) || !tabu.contains(d.rank()))) {
+								next = d;
+								nextLength = len;
+							}
+						}
+						if (next != null) {
+							current = next;
+							currentLength = nextLength;
+							addTabu(current.rank());
+						}
+					}
+
+					if (currentLength > bestLength) {
+						best = current;
+						bestLength = currentLength;
+					}
+					steps++;
+				}
+			} catch (Exception e) {
+				System.err.println("Error in chain " + id + " at deck: " + current);
+				e.printStackTrace(System.err);
+				System.exit(-1);
+			}
+		}
+
+		/**
+		 * @return A new deck, obtained by applying a random move to given deck.
+		 */
+		private Deck move(Deck deck) {
+			Deck result = new Deck(deck);
+			int[] c = result.cards;
+			int i, j;
+			switch (rnd.nextInt(3)) {
+			case 0: // Swap two different cards
+				do {
+					i = rnd.nextInt(c.length);
+					j = rnd.nextInt(c.length);
+				} while (c[i] == c[j]);
+				int tmp = c[i];
+				c[i] = c[j];
+				c[j] = tmp;
+				break;
+			case 1: // Rotates a segment of the deck by one position
+				do {
+					i = rnd.nextInt(c.length);
+					j = rnd.nextInt(c.length);
+				} while (i == j);
+				moveCard(c, i, j);
+				break;
+			default: // Moves a penalty card somewhere else
+				do {
+					i = rnd.nextInt(c.length);
+				} while (c[i] == 0);
+				do {
+					j = rnd.nextInt(c.length);
+				} while (i == j);
+				moveCard(c, i, j);
+				break;
+			}
+			return result;
+		}
+
+		private void addTabu(long rank) {
+			if (tabu.add(rank)) {
+				tabuList.add(rank);
+				if (tabuList.size() > TABU_SIZE)
+					tabu.remove(tabuList.poll());
+			}
+		}
+	}
+
+	/**
+	 * Moves card at position from to position to, shifting cards in between.
+	 */
+	private static void moveCard(int[] c, int from, int to) {
+		int card = c[from];
+		if (from < to)
+			System.arraycopy(c, from + 1, c, from, to - from);
+		else
+			System.arraycopy(c, to, c, to + 1, from - to);
+		c[to] = card;
+	}
+
+	private final List<Deck> seeds;
+
+	private final Strategy strategy;
+
+	private final GameRecords records;
+
+	private volatile boolean stopped = false;
+
+	/**
+	 *
+	 * @param saveFolder Folder where to save longest and infinite games.
+	 * @param seeds      Decks where search starts from.
+	 * @param strategy   Rule to decide which moves are kept.
+	 */
+	public LocalSearch(File saveFolder, List<Deck> seeds, Strategy strategy) {
+		if (seeds.isEmpty())
+			throw new IllegalArgumentException("At least one seed deck is needed.");
+		this.seeds = new ArrayList<>(seeds);
+		this.strategy = strategy;
+		this.records = new GameRecords(saveFolder, LONGEST_FILE_NAME);
+	}
+
+	/**
+	 * Plays a game and reports it, if it is a record.
+	 *
+	 * @param engine Engine used to play the game.
+	 * @param result Where game results are stored.
+	 * @return Length of the game, or -1 if the game is infinite.
+	 */
+	private int score(Engine engine, GameResult result, Deck deck) throws IOException {
+		engine.play(deck, result);
+		GameStats longest = records.getLongestGame();
+		if (result.isInfinite() || (longest == null) || (result.getCardsPlayed() > longest.getCardsPlayed()))
+			records.onFinish(result.toStats(deck));
+		return result.isInfinite() ? -1 : result.getCardsPlayed();
+	}
+
+	/**
+	 * Runs the search forever, or until {@link #stop()} is called.
+	 *
+	 * @param threads Number of chains to run in parallel. Use -1 to use a chain per
+	 *                processor.
+	 * @param seed    Seed for random number generation.
+	 * @throws IOException
+	 */
+	public void run(int threads, long seed) throws IOException {
+		if (threads == -1)
+			threads = Runtime.getRuntime().availableProcessors();
+
+		System.out.println("Searching for long games with " + strategy + " strategy, seed: " + seed);
+
+		// Plays each seed only once, even if more chains start from it
+		Engine engine = Rules.ITALIAN.compile();
+		GameResult result = new GameResult();
+		Map<String, Integer> lengths = new HashMap<>();
+		for (Deck d : seeds)
+			if (!lengths.containsKey(d.toString()))
+				lengths.put(d.toString(), score(engine, result, d));
+
+		SplittableRandom rnd = new SplittableRandom(seed);
+		List<Chain> chains = new ArrayList<>(threads);
+		for (int i = 0; i < threads; ++i) {
+			Deck d = seeds.get(i % seeds.size());
+			chains.add(new Chain(i, d, lengths.get(d.toString()), rnd.split()));
+		}
+		System.out.println();
+
+		ExecutorService ex = Executors.newFixedThreadPool(threads);
+		for (Chain c : chains)
+			ex.execute(c);
+		ex.shutdown();
+
+		try {
+			while (!ex.awaitTermination(REPORT_INTERVAL, TimeUnit.SECONDS)) {
+				for (Chain c : chains)
+					System.out.println("Chain " + c.id + ": " + c.steps + " steps, best game " + c.bestLength
+							+ " cards [" + c.best + "]");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops the search.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+}
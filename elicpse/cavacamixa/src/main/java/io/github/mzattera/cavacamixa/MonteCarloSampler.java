@@ -0,0 +1,259 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mzattera.util.FileUtil;
+
+/**
+ * Plays uniformly random decks in parallel, to estimate the distribution of
+ * game lengths and to look for long and infinite games anywhere in the search
+ * space.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class MonteCarloSampler {
+
+	private static final String LONGEST_FILE_NAME = "cavacamixa_sampling_longest_game.txt";
+
+	public static final String HISTOGRAM_FILE_NAME = "cavacamixa_sampling_histogram.csv";
+
+	/**
+	 * Games longer than this are counted in the last bin of the histogram.
+	 */
+	private static final int MAX_CARDS = 10_000;
+
+	/**
+	 * Games each runner plays before merging its results.
+	 */
+	private static final int CHUNK_SIZE = 10_000;
+
+	/**
+	 * Seconds between two reports.
+	 */
+	private static final int REPORT_INTERVAL = 60;
+
+	/**
+	 * A chunk of games to play, with its own random numbers generator; chunks are
+	 * created in a fixed order, so results do not depend on which runner plays
+	 * which chunk.
+	 */
+	private static class Chunk {
+
+		private final long games;
+
+		private final SplittableRandom rnd;
+
+		Chunk(long games, SplittableRandom rnd) {
+			this.games = games;
+			this.rnd = rnd;
+		}
+	}
+
+	private class Runner implements Runnable {
+
+		@Override
+		public void run() {
+			long[] h = new long[MAX_CARDS + 1];
+			Engine engine = Rules.ITALIAN.compile();
+			GameResult result = new GameResult();
+			Deck deck = null;
+			try {
+				Chunk c;
+				while ((c = claim()) != null) {
+					long n = c.games;
+					long u = 0, inf = 0;
+					for (long i = 0; i < n; ++i) {
+						deck = Deck.unrank(c.rnd.nextLong(Deck.TOTAL_DECKS));
+						engine.play(deck, result);
+						if (result.isInfinite())
+							inf++;
+						else if (result.isUninteresting())
+							u++;
+						else
+							h[Math.min(result.getCardsPlayed(), MAX_CARDS)]++;
+						if (records.isCandidate(result))
+							records.onFinish(result.toStats(deck));
+					}
+					merge(h, n, u, inf);
+				}
+			} catch (Exception e) {
+				onError(deck, e);
+			}
+		}
+	}
+
+	private final File saveFolder;
+
+	private final long seed;
+
+	// Generator of random numbers generators for chunks
+	private final SplittableRandom rnd;
+
+	private final GameRecords records;
+
+	// Games still to play, negative to play forever
+	private long remaining;
+
+	// Merged results
+	private final long[] histogram = new long[MAX_CARDS + 1];
+	private long games = 0, uninteresting = 0, infinite = 0;
+
+	private final long startTime = System.currentTimeMillis();
+
+	/**
+	 *
+	 * @param saveFolder Folder where to save longest and infinite games, and the
+	 *                   histogram of game lengths.
+	 * @param games      Number of games to play; use -1 to play forever.
+	 * @param seed       Seed for random number generation.
+	 */
+	public MonteCarloSampler(File saveFolder, long games, long seed) {
+		this.saveFolder = saveFolder;
+		this.remaining = games;
+		this.seed = seed;
+		this.rnd = new SplittableRandom(seed);
+		this.records = new GameRecords(saveFolder, LONGEST_FILE_NAME);
+	}
+
+	/**
+	 * Invoked by runners to get more games to play.
+	 *
+	 * @return Next chunk of games the runner should play before merging results,
+	 *         or null if all games have been played.
+	 */
+	private synchronized Chunk claim() {
+		if (remaining == 0)
+			return null;
+		long n = (remaining < 0) ? CHUNK_SIZE : Math.min(remaining, CHUNK_SIZE);
+		if (remaining > 0)
+			remaining -= n;
+		return new Chunk(n, rnd.split());
+	}
+
+	/**
+	 * Invoked by runners to merge their results; local histogram is cleared.
+	 */
+	private synchronized void merge(long[] h, long n, long u, long inf) {
+		for (int i = 0; i < h.length; ++i) {
+			histogram[i] += h[i];
+			h[i] = 0;
+		}
+		games += n;
+		uninteresting += u;
+		infinite += inf;
+	}
+
+	/**
+	 * Invoked when an error occurs. It ends current run.
+	 *
+	 * @param deck Deck used in the game
+	 * @param e    Exception that occurred
+	 */
+	private synchronized void onError(Deck deck, Exception e) {
+		System.err.println("================================");
+		System.err.println("Error running this deck configuration: " + deck + "\n");
+		e.printStackTrace(System.err);
+		System.err.println("================================");
+		System.err.flush();
+
+		System.exit(-1);
+	}
+
+	/**
+	 * Plays all games, periodically reporting results.
+	 *
+	 * @param threads Number of threads to use for parallel execution. Use -1 to use
+	 *                a thread per processor.
+	 * @throws IOException
+	 */
+	public void run(int threads) throws IOException {
+		System.out.println("Sampling random decks, seed: " + seed);
+		System.out.println();
+
+		if (threads == -1)
+			threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService ex = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; ++i)
+			ex.execute(new Runner());
+		ex.shutdown();
+
+		try {
+			while (!ex.awaitTermination(REPORT_INTERVAL, TimeUnit.SECONDS))
+				report();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		report();
+	}
+
+	/**
+	 * Prints a summary of results so far and saves the histogram of game lengths.
+	 */
+	private synchronized void report() throws IOException {
+		long n = games - uninteresting - infinite; // Finite games actually played
+		double sum = 0, sumSq = 0;
+		int max = 0;
+		for (int i = 0; i < histogram.length; ++i) {
+			sum += (double) i * histogram[i];
+			sumSq += (double) i * i * histogram[i];
+			if (histogram[i] > 0)
+				max = i;
+		}
+		double mean = (n == 0) ? 0 : sum / n;
+		double sd = (n < 2) ? 0 : Math.sqrt((sumSq - n * mean * mean) / (n - 1));
+		double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+
+		System.out.println(String.format(Locale.ROOT,
+				"Sampled %d games (%.0f games/s): uninteresting=%d, infinite=%d (%.3e), mean length=%.2f +/- %.2f (sd=%.2f), "
+						+ "median=%d, p99=%d, p99.99=%d, max=%d",
+				games, games / Math.max(seconds, 1e-3), uninteresting, infinite, (games == 0) ? 0.0 : (double) infinite / games,
+				mean, (n == 0) ? 0.0 : sd / Math.sqrt(n), sd, percentile(n, 0.5), percentile(n, 0.99),
+				percentile(n, 0.9999), max));
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("# seed=").append(seed).append(", games=").append(games).append(", uninteresting=")
+				.append(uninteresting).append(", infinite=").append(infinite).append('\n');
+		sb.append("cards,games\n");
+		for (int i = 0; i < histogram.length; ++i)
+			if (histogram[i] > 0)
+				sb.append(i).append(',').append(histogram[i]).append('\n');
+		FileUtil.writeFileAtomically(new File(saveFolder, HISTOGRAM_FILE_NAME), sb.toString());
+	}
+
+	/**
+	 * @return The game length below which given fraction of the n finite games in
+	 *         the histogram fall.
+	 */
+	private int percentile(long n, double p) {
+		long target = (long) Math.ceil(n * p);
+		long count = 0;
+		for (int i = 0; i < histogram.length; ++i) {
+			count += histogram[i];
+			if ((count >= target) && (count > 0))
+				return i;
+		}
+		return 0;
+	}
+}
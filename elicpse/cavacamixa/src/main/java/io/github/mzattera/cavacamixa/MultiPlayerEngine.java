@@ -0,0 +1,244 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Engine for any number of players, following the rules described in
+ * {@link Rules}. In returned statistics, the losing player is the first player
+ * who ran out of cards.
+ *
+ * Like {@link TwoPlayerEngine}, it reuses its buffers across games and it is
+ * not thread-safe.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+final class MultiPlayerEngine implements Engine {
+
+	private final int players;
+
+	private final int deckSize;
+
+	// Bits needed to store a card
+	private final int cardBits;
+
+	private final int[] handStart, handSize;
+
+	// Ring buffers for the hands
+	private final int mask;
+	private final int[][] hand;
+	private final int[] head, len;
+
+	// True for players out of the game
+	private final boolean[] out;
+
+	private final int[] pile;
+
+	private final PositionSet positions;
+	private final long[] key;
+
+	private final GameResult result = new GameResult();
+
+	// Cards and penalty cards played when each position was recorded
+	private int[] cardsAt = new int[1024], penaltiesAt = new int[1024];
+
+	MultiPlayerEngine(Rules rules) {
+		players = rules.getPlayers();
+		deckSize = rules.getDeckSize();
+		cardBits = 32 - Integer.numberOfLeadingZeros(rules.getMaxPenalty());
+
+		handStart = new int[players];
+		handSize = new int[players];
+		for (int p = 0; p < players; ++p) {
+			handStart[p] = rules.getHandStart(p);
+			handSize[p] = rules.getHandSize(p);
+		}
+
+		int capacity = Integer.highestOneBit(deckSize) << 1;
+		mask = capacity - 1;
+		hand = new int[players][capacity];
+		head = new int[players];
+		len = new int[players];
+		out = new boolean[players];
+		pile = new int[deckSize];
+
+		key = new long[PositionSet.words(players * 9 + deckSize * cardBits)];
+		positions = new PositionSet(key.length);
+	}
+
+	@Override
+	public GameStats play(Deck d) {
+		play(d, result);
+		return result.toStats(d);
+	}
+
+	@Override
+	public void play(Deck d, GameResult result) {
+		for (int p = 0; p < players; ++p) {
+			System.arraycopy(d.cards, handStart[p], hand[p], 0, handSize[p]);
+			head[p] = 0;
+			len[p] = handSize[p];
+			out[p] = false;
+		}
+
+		int active = players;
+		int player = 0;
+		int penalty = 0;
+		int penaltyPlayer = -1; // Player who played last penalty card
+		int firstOut = -1;
+		int pileSize = 0;
+		int cardsPlayed = 0, penaltyCardsPlayed = 0, hands = 0;
+
+		positions.clear();
+		record(player, 0, 0, 0);
+
+		while (true) { // Game loop
+
+			boolean handOver = false;
+
+			if (len[player] == 0) { // Player is out of the game
+				out[player] = true;
+				if (firstOut < 0)
+					firstOut = player;
+				if (--active == 1) {
+					result.set(cardsPlayed, penaltyCardsPlayed, hands, firstOut, next(player), null);
+					return;
+				}
+
+				if (penalty != 0) { // Could not respond to a penalty card
+					penalty = 0;
+					handOver = true;
+				} else {
+					player = next(player);
+				}
+
+			} else {
+
+				// Play card
+				int[] h = hand[player];
+				int played = h[head[player]];
+				head[player] = (head[player] + 1) & mask;
+				len[player]--;
+				pile[pileSize++] = played;
+				cardsPlayed++;
+
+				if (played != 0) { // Played a "penalty card"
+					penalty = played;
+					penaltyPlayer = player;
+					penaltyCardsPlayed++;
+					player = next(player);
+				} else if (penalty != 0) { // Player was responding to a penalty card
+					handOver = (--penalty == 0);
+				} else { // Was not responding to a penalty
+					player = next(player);
+				}
+			}
+
+			if (handOver) { // Cards on the table go to whom played last penalty card
+				player = penaltyPlayer;
+				int[] h = hand[player];
+				int tail = head[player] + len[player];
+				for (int j = 0; j < pileSize; ++j)
+					h[(tail + j) & mask] = pile[j];
+				len[player] += pileSize;
+				pileSize = 0;
+				hands++;
+
+				int first = record(player, hands, cardsPlayed, penaltyCardsPlayed);
+				if (first >= 0) {
+					result.set(cardsPlayed, penaltyCardsPlayed, hands, 0, -1,
+							cycle(first, hands, cardsPlayed, penaltyCardsPlayed));
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Next player still in the game.
+	 */
+	private int next(int player) {
+		do {
+			player = (player + 1) % players;
+		} while (out[player]);
+		return player;
+	}
+
+	/**
+	 * Records current position, seen from the player to move.
+	 *
+	 * @return -1 if the position is new, otherwise the number of hands won when
+	 *         the position was first recorded.
+	 */
+	private int record(int player, int hands, int cards, int penalties) {
+		for (int i = 0; i < key.length; ++i)
+			key[i] = 0;
+		int offset = 0;
+		for (int i = 0; i < players; ++i) {
+			int p = (player + i) % players;
+			offset = PositionSet.put(key, offset, out[p] ? 1 : 0, 1);
+			offset = PositionSet.put(key, offset, len[p], 8);
+			int[] h = hand[p];
+			for (int k = 0, j = head[p]; k < len[p]; ++k, j = (j + 1) & mask)
+				offset = PositionSet.put(key, offset, h[j], cardBits);
+		}
+		int first = positions.add(key);
+		if (first < 0) {
+			if (hands == cardsAt.length) {
+				cardsAt = Arrays.copyOf(cardsAt, hands * 2);
+				penaltiesAt = Arrays.copyOf(penaltiesAt, hands * 2);
+			}
+			cardsAt[hands] = cards;
+			penaltiesAt[hands] = penalties;
+		}
+		return first;
+	}
+
+	/**
+	 * Describes the loop of an infinite game, from recorded positions. Hands are
+	 * listed starting from the player to move; players out of the game are
+	 * written as "x".
+	 *
+	 * @param first Hands won when the repeated position was first recorded.
+	 */
+	private CycleInfo cycle(int first, int hands, int cards, int penalties) {
+		List<String> p = new ArrayList<>(hands - first);
+		StringBuilder sb = new StringBuilder();
+		for (int h = first; h < hands; ++h) {
+			positions.get(h, key);
+			sb.setLength(0);
+			int offset = 0;
+			for (int i = 0; i < players; ++i) {
+				if (i > 0)
+					sb.append('-');
+				boolean isOut = PositionSet.get(key, offset, 1) != 0;
+				int n = PositionSet.get(key, offset + 1, 8);
+				offset += 9;
+				if (isOut)
+					sb.append('x');
+				for (int k = 0; k < n; ++k, offset += cardBits)
+					sb.append(PositionSet.get(key, offset, cardBits));
+			}
+			p.add(sb.toString());
+		}
+		return new CycleInfo(first, cardsAt[first], hands - first, cards - cardsAt[first],
+				penalties - penaltiesAt[first], p);
+	}
+}
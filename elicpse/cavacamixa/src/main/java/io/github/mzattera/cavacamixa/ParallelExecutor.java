@@ -18,10 +18,18 @@ package io.github.mzattera.cavacamixa;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.UUID;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import io.github.mzattera.util.FileUtil;
 
@@ -36,30 +44,80 @@ public class ParallelExecutor {
 
 	private static final String LONGEST_FILE_NAME = "cavacamixa_longest_game.txt";
 
+	/**
+	 * Seconds between two updates of the status file.
+	 */
+	private static final int STATUS_INTERVAL = 60;
+
 	private class Runner implements Runnable {
 		@Override
 		public void run() {
-			Deck cfg = null;
+			Engine engine = engines.get();
+
+			// Reused for all games played by this runner
+			Deck deck = new Deck(new int[rules.getDeckSize()]);
+			GameResult result = new GameResult();
+
+			boolean started = false;
 			try {
-				while ((cfg = onStart()) != null) { // Run till we have configs to test
-					onFinish(Player.play(cfg));
+				while (onStart(deck)) { // Run till we have configs to test
+					started = true;
+					engine.play(deck, result);
+					onFinish(deck, result);
 				}
 			} catch (Exception e) {
-				if (cfg != null)
-					onError(cfg, e);
+				if (started)
+					onError(deck, e);
 			}
 		}
 	}
 
-	// Next config to play
-	private Deck current = new Deck();
+	private final Rules rules;
+
+	// Decks to play
+	private final DeckPattern pattern;
+
+	// First deck of the walk through all decks
+	private Deck first;
+
+	// Next config to play; this is advanced in place
+	private Deck current;
+
+	// Rank of first deck to play, and of the deck after last one to play; when
+	// resuming, the range start is the one saved in the check point
+	private long from;
+	private final long to;
+
+	// Rank of current deck; -1 if ranks do not fit in a long
+	private long position;
+
+	private final Supplier<Engine> engines;
+
+	private final int threads;
+
+	// Decks that were being played when last check point was saved; these are
+	// played again before resuming from current
+	private final Deque<Deck> pending = new ArrayDeque<>();
+
+	// Decks being played right now; these are the decks reused by runners
+	private final Set<Deck> inFlight = new HashSet<>();
+
+	// True when the application is exiting because of an error, or after all
+	// decks were played; in both cases the shutdown hook must not save a check
+	// point
+	private volatile boolean exiting = false;
 
-	private GameStats longestGame = null;
 	private final long batchSize;
+	private final long batchSeconds;
 	private long games = 0;
+	private long batchEnd;
 
 	private final File saveFolder;
 
+	private final ProgressTracker tracker;
+
+	private final GameRecords records;
+
 	/**
 	 * 
 	 * @param saveFolder Folder where to save check point and longest game.
@@ -67,87 +125,280 @@ public class ParallelExecutor {
 	 * @throws IOException If configuration folder cannot be read.
 	 */
 	public ParallelExecutor(File saveFolder, int batchSize) throws IOException {
+		this(saveFolder, batchSize, Rules.ITALIAN);
+	}
+
+	/**
+	 * 
+	 * @param saveFolder Folder where to save check point and longest game.
+	 * @param batchSize  Size of a batch, after which check point is saved.
+	 * @param rules      Rules of the games to play.
+	 * @throws IOException If configuration folder cannot be read.
+	 */
+	public ParallelExecutor(File saveFolder, int batchSize, Rules rules) throws IOException {
+		this(saveFolder, batchSize, DeckPattern.any(rules));
+	}
+
+	/**
+	 * 
+	 * @param saveFolder Folder where to save check point and longest game.
+	 * @param batchSize  Size of a batch, after which check point is saved.
+	 * @param pattern    Only decks matching this pattern are played.
+	 * @throws IOException If configuration folder cannot be read.
+	 */
+	public ParallelExecutor(File saveFolder, int batchSize, DeckPattern pattern) throws IOException {
+		this(saveFolder, pattern, 0, -1, Engine.supplier(null, pattern.getRules()), -1, batchSize, -1);
+	}
+
+	/**
+	 * 
+	 * @param saveFolder   Folder where to save check point and longest game.
+	 * @param pattern      Only decks matching this pattern are played.
+	 * @param from         Rank of first deck to play, in the sequence of decks
+	 *                     matching the pattern; this is ignored when resuming from
+	 *                     a check point.
+	 * @param to           Rank of the deck after last one to play; use -1 to play
+	 *                     all remaining decks.
+	 * @param engines      Provides an engine for each thread.
+	 * @param threads      Number of threads to use for parallel execution. Use -1
+	 *                     to use a thread per processor.
+	 * @param batchSize    Games played in a batch, after which check point is
+	 *                     saved; use -1 for no limit.
+	 * @param batchSeconds Maximum duration of a batch in seconds; use -1 for no
+	 *                     limit.
+	 * @throws IOException If configuration folder cannot be read.
+	 */
+	public ParallelExecutor(File saveFolder, DeckPattern pattern, long from, long to, Supplier<Engine> engines,
+			int threads, long batchSize, long batchSeconds) throws IOException {
+		this.rules = pattern.getRules();
+		this.pattern = pattern;
+		this.engines = engines;
+		this.threads = (threads == -1) ? Runtime.getRuntime().availableProcessors() : threads;
+		this.batchSize = (batchSize < 0) ? Long.MAX_VALUE : batchSize;
+		this.batchSeconds = batchSeconds;
+
+		long total;
+		try {
+			total = pattern.count();
+		} catch (ArithmeticException e) {
+			total = -1;
+		}
+		if (to == -1)
+			to = total;
+		if ((total < 0) && ((from != 0) || (to != -1)))
+			throw new IllegalArgumentException("Ranges cannot be used for decks matching pattern: " + pattern);
+		if ((total >= 0) && ((from < 0) || (to < from) || (to > total)))
+			throw new IllegalArgumentException("Invalid range: [" + from + ", " + to + ")");
+		this.from = from;
+		this.to = to;
+
+		if (total < 0) {
+			first = pattern.first();
+			position = -1;
+		} else {
+			first = (from < to) ? pattern.unrank(from) : null;
+			position = from;
+		}
+		current = (first == null) ? null : new Deck(first);
+
 		this.saveFolder = saveFolder;
+		this.records = new GameRecords(saveFolder, LONGEST_FILE_NAME);
 		File saveFile = new File(saveFolder, SAVE_FILE_NAME);
 		if (saveFile.exists()) {
 			readCheckPoint(saveFile);
 		}
-		this.batchSize = batchSize;
+		this.tracker = new ProgressTracker(saveFolder, (total < 0) ? -1 : to - this.from,
+				(pattern.equals(DeckPattern.any(Rules.ITALIAN)) && (this.from == 0) && (to == total))
+						? Deck.UNINTERESTING_DECKS
+						: -1);
+	}
+
+	/**
+	 * @return Rank of first deck to play; when resuming, this is the start of the
+	 *         range saved in the check point.
+	 */
+	public long getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return Rank of the deck after last one to play, -1 if ranks do not fit in
+	 *         a long.
+	 */
+	public long getTo() {
+		return to;
 	}
 
-	private void writeCheckPoint() throws IOException {
-		FileUtil.writeFile(new File(saveFolder, SAVE_FILE_NAME), current + "\n" + longestGame.getDeck());
+	/**
+	 * Saves a check point. The check point lists the ranges of decks already
+	 * played, the decks being played, which will be played again when resuming,
+	 * and the longest game so far, with its full statistics.
+	 * 
+	 * The file is replaced atomically, so a crash while saving never leaves a
+	 * corrupted check point behind.
+	 */
+	private synchronized void writeCheckPoint() throws IOException {
+
+		// Decks still to be played before current
+		List<Deck> open = new ArrayList<>(inFlight);
+		open.addAll(pending);
+		open.sort(Comparator.comparing(Deck::toString));
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("rules=").append(rules.getName()).append('\n');
+		sb.append("pattern=").append(pattern).append('\n');
+		sb.append("start=").append(first == null ? "" : first).append('\n');
+		sb.append("end=").append(to).append('\n');
+		sb.append("next=").append(current == null ? "" : current).append('\n');
+		for (Deck d : open)
+			sb.append("inFlight=").append(d).append('\n');
+
+		// Ranges [from, to) that have been completely played
+		Deck from = first;
+		for (Deck d : open) {
+			if ((from != null) && !d.toString().equals(from.toString()))
+				sb.append("completed=").append(from).append(' ').append(d).append('\n');
+			from = successor(d);
+		}
+		if ((from != null) && ((current == null) || !from.toString().equals(current.toString())))
+			sb.append("completed=").append(from).append(' ').append(current == null ? "" : current).append('\n');
+
+		GameStats longestGame = records.getLongestGame();
+		if (longestGame != null)
+			sb.append("longest=").append(longestGame.getDeck()).append(',').append(longestGame.getCardsPlayed())
+					.append(',').append(longestGame.getPenaltyCardsPlayed()).append(',')
+					.append(longestGame.getHands()).append(',').append(longestGame.getLosingPlayer()).append(',')
+					.append(longestGame.getWinningPlayer()).append('\n');
+
+		FileUtil.writeFileAtomically(new File(saveFolder, SAVE_FILE_NAME), sb.toString());
 		System.out.println("Checkpoint [" + current + "]...");
 	}
 
 	private void readCheckPoint(File saveFile) throws IOException {
 		String cp = FileUtil.readFile(saveFile);
-		String[] cpp = cp.trim().split("\\n");
-		if (cpp.length != 2)
-			throw new IllegalArgumentException("Invalid checkpoint file");
-		current = new Deck(cpp[0]);
-		longestGame = Player.play(new Deck(cpp[1]));
+		String[] cpp = cp.trim().split("\\R");
+
+		if (!cpp[0].contains("=")) {
+			// Legacy format: next deck and deck of longest game, which must be replayed
+			if ((cpp.length != 2) || !pattern.equals(DeckPattern.any(Rules.ITALIAN)))
+				throw new IllegalArgumentException("Invalid checkpoint file");
+			current = new Deck(cpp[0]);
+			position = pattern.rank(current);
+			records.setLongestGame(Player.play(new Deck(cpp[1])));
+			return;
+		}
+
+		for (String line : cpp) {
+			int pos = line.indexOf('=');
+			if (pos < 0)
+				throw new IllegalArgumentException("Invalid checkpoint file: " + line);
+			String key = line.substring(0, pos).trim();
+			String value = line.substring(pos + 1).trim();
+			switch (key) {
+			case "rules":
+				if (!Rules.forName(value).equals(rules))
+					throw new IllegalArgumentException("Checkpoint file is for rules: " + value);
+				break;
+			case "pattern":
+				if (!value.equals(pattern.toString()))
+					throw new IllegalArgumentException("Checkpoint file is for pattern: " + value);
+				break;
+			case "start":
+				first = value.isEmpty() ? null : new Deck(rules, value);
+				if (position >= 0)
+					from = (first == null) ? to : pattern.rank(first);
+				break;
+			case "end":
+				if (Long.parseLong(value) != to)
+					throw new IllegalArgumentException("Checkpoint file is for decks up to rank: " + value);
+				break;
+			case "next":
+				current = value.isEmpty() ? null : new Deck(rules, value);
+				if (position >= 0)
+					position = (current == null) ? to : pattern.rank(current);
+				break;
+			case "inFlight":
+				pending.add(new Deck(rules, value));
+				break;
+			case "longest":
+				// Winning player is missing in check points saved by older versions
+				String[] s = value.split(",");
+				if ((s.length != 5) && (s.length != 6))
+					throw new IllegalArgumentException("Invalid checkpoint file: " + line);
+				GameStats longest = new GameStats(new Deck(rules, s[0]), Integer.parseInt(s[1]),
+						Integer.parseInt(s[2]), Integer.parseInt(s[3]), Integer.parseInt(s[4]), false);
+				if (s.length == 6)
+					longest.playerWon(Integer.parseInt(s[5]));
+				records.setLongestGame(longest);
+				break;
+			default: // completed ranges are informative only
+				break;
+			}
+		}
 	}
 
 	/**
 	 * Invoked by runners when they want to start a new game.
 	 * 
-	 * @return Configuration of the game to try, or null if all games have been
-	 *         tried already.
-	 */
-	public synchronized Deck onStart() {
-		if (games++ < batchSize) {
-			if (current == null) {
-				System.out.println("No more decks to try!");
-				return null;
+	 * @param deck Where to store configuration of the game to try; runners reuse
+	 *             it for all their games.
+	 * @return False if all games have been tried already.
+	 */
+	public synchronized boolean onStart(Deck deck) {
+		if ((games++ < batchSize) && ((batchSeconds < 0) || (System.currentTimeMillis() < batchEnd))) {
+			if (!pending.isEmpty()) {
+				copy(pending.poll(), deck);
+			} else {
+				if (current == null) {
+					System.out.println("No more decks to try!");
+					return false;
+				}
+				copy(current, deck);
+				if (position < 0) {
+					if (!pattern.advance(current))
+						current = null;
+				} else {
+					position++;
+					if ((position >= to) || !pattern.advance(current))
+						current = null;
+				}
 			}
-			Deck result = current;
-			current = current.next();
-			return result;
+			inFlight.add(deck);
+			return true;
 		} else { // Batch completed
-			return null;
+			return false;
 		}
 	}
 
+	private static void copy(Deck from, Deck to) {
+		System.arraycopy(from.cards, 0, to.cards, 0, to.cards.length);
+	}
+
 	/**
-	 * Invoked by runners when a game is finished.
+	 * Invoked by runners when a game is finished. Statistics for the game are
+	 * created only if it is reported, as infinite or longest game.
 	 * 
-	 * @param stats Game statistics.
+	 * @param deck   Deck used in the game.
+	 * @param result Game results.
 	 */
-	public synchronized void onFinish(GameStats stats) {
+	public synchronized void onFinish(Deck deck, GameResult result) {
 
-		if (stats.isInfinite()) {
-			// Found an infinite game
-			System.out.println("=== INFINITE GAME FOUND!!! ========================");
-			System.out.println(stats.toString());
-			System.out.println("===================================================");
-			try {
-				FileUtil.writeFile(new File(saveFolder, "cavacamixa_infinite_game" + UUID.randomUUID() + ".txt"),
-						stats.toString());
-			} catch (IOException e) {
-				System.err.println("Cannot save, continuing...");
-			}
-
-		} else {
+		inFlight.remove(deck);
+		tracker.gamePlayed(result);
+		if (!records.isCandidate(result))
+			return;
 
-			if (longestGame == null)
-				longestGame = stats;
-			else if (stats.getCardsPlayed() >= longestGame.getCardsPlayed())
-				longestGame = stats;
-
-			if (longestGame == stats) {
-				try {
-					System.out.println("Found longer game: " + stats);
-					FileUtil.writeFile(new File(saveFolder, LONGEST_FILE_NAME), stats.toString());
-				} catch (IOException e) {
-					onError(stats.getDeck(), e);
-				}
-			}
+		// Deck is reused by the runner for next games
+		GameStats stats = result.toStats(new Deck(deck));
+		try {
+			records.onFinish(stats);
+		} catch (IOException e) {
+			onError(stats.getDeck(), e);
 		}
 	}
 
 	/**
-	 * Invoked when an error occurs. It ends current run.
+	 * Invoked when an error occurs. It saves a check point and ends current run.
 	 * 
 	 * 
 	 * @param deck Deck used in the game
@@ -160,38 +411,119 @@ public class ParallelExecutor {
 		System.err.println("================================");
 		System.err.flush();
 
+		// Shutdown hook must not wait for the lock we are holding
+		exiting = true;
+		try {
+			writeCheckPoint();
+		} catch (IOException ex) {
+			System.err.println("Cannot save check point.");
+		}
+
 		System.exit(-1);
 	}
 
 	/**
-	 * Runs forever, saving check points at each batch.
+	 * Runs until all decks have been played, saving check points at each batch.
+	 * A check point is also saved when the JVM is terminated (e.g. by SIGTERM),
+	 * so no work is lost when resuming.
 	 * 
 	 * @throws IOException
 	 */
 	public void run() throws IOException {
 		System.out.println("Resuming playing from deck configuration: " + current);
-		System.out.println("longest game so far: " + longestGame);
+		if (position >= 0)
+			System.out.println("Decks to play: " + (to - from) + " (ranks " + from + " to " + to + ", "
+					+ (getPosition() - from) + " already played)");
+		if (!pending.isEmpty())
+			System.out.println("Decks to replay first: " + pending.size());
+		System.out.println("longest game so far: " + records.getLongestGame());
 		System.out.println();
-		while (true) {
-			long start = System.currentTimeMillis();
-			runBatch();
-			writeCheckPoint();
-			long elapsed = (System.currentTimeMillis() - start) / 60_000;
-			System.out
-					.println("Time taken for a batch of " + Cavacamixa.BATCH_SIZE + " games: " + elapsed + " minutes");
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (exiting)
+				return;
+			try {
+				writeCheckPoint();
+			} catch (IOException e) {
+				System.err.println("Cannot save check point on shutdown.");
+			}
+		}));
+
+		ScheduledExecutorService status = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+		status.scheduleAtFixedRate(this::updateStatus, STATUS_INTERVAL, STATUS_INTERVAL, TimeUnit.SECONDS);
+
+		try {
+			while (true) {
+				long start = System.currentTimeMillis();
+				long played = tracker.getGames();
+				runBatch();
+				writeCheckPoint();
+				updateStatus();
+				System.out.println(tracker);
+				long elapsed = (System.currentTimeMillis() - start) / 60_000;
+				System.out.println("Time taken for a batch of " + (tracker.getGames() - played) + " games: "
+						+ elapsed + " minutes");
+				if (isCompleted()) {
+					// Final check point has been saved already
+					exiting = true;
+					System.out.println("\n" + tracker.getSummary());
+					System.out.println("Longest game: " + records.getLongestGame());
+					return;
+				}
+			}
+		} finally {
+			status.shutdownNow();
 		}
 	}
 
+	/**
+	 * Updates throughput measures and status file.
+	 */
+	private void updateStatus() {
+		try {
+			long p = getPosition();
+			tracker.update((p < 0) ? -1 : p - from);
+		} catch (IOException e) {
+			System.err.println("Cannot save status, continuing...");
+		}
+	}
+
+	/**
+	 * @return Rank of the next deck to play, or -1 if this cannot be computed.
+	 */
+	private synchronized long getPosition() {
+		if (position < 0)
+			return -1;
+		return (current == null) ? to : position;
+	}
+
+	/**
+	 * @return The deck after given one, or null if it is the last deck to play.
+	 */
+	private Deck successor(Deck deck) {
+		if ((position >= 0) && (pattern.rank(deck) + 1 >= to))
+			return null;
+		return pattern.next(deck);
+	}
+
+	/**
+	 * @return True if all decks have been played.
+	 */
+	private synchronized boolean isCompleted() {
+		return (current == null) && pending.isEmpty() && inFlight.isEmpty();
+	}
+
 	/**
 	 * Runs this executor, playing one batch of games.
 	 * 
-	 * @param threads Number of threads to use for parallel execution. Use -1 to use
-	 *                a thread per processor.
-	 * 
 	 * @return The non-infinite game with the longest duration.
 	 */
 	private GameStats runBatch() {
-		return runBatch(-1);
+		return runBatch(threads);
 	}
 
 	/**
@@ -204,6 +536,7 @@ public class ParallelExecutor {
 	 */
 	private GameStats runBatch(int threads) {
 		games = 0;
+		batchEnd = System.currentTimeMillis() + batchSeconds * 1000;
 		if (threads == -1)
 			threads = Runtime.getRuntime().availableProcessors();
 		ExecutorService ex = Executors.newFixedThreadPool(threads);
@@ -213,7 +546,7 @@ public class ParallelExecutor {
 
 		try {
 			ex.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); // Waits for all threads to stop
-			return longestGame;
+			return records.getLongestGame();
 		} catch (Exception e) {
 			return null;
 		}
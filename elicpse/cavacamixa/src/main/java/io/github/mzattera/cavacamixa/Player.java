@@ -16,12 +16,12 @@
 
 package io.github.mzattera.cavacamixa;
 
-import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * This class can play a game of cavacamixa.
@@ -37,7 +37,13 @@ public class Player {
 
 		private final List<Integer> deck0, deck1;
 
-		public Status(int player, List<Integer> deck0, List<Integer> deck1) {
+		// Hands won, cards and penalty cards played when this status was reached
+		private final int hands, cards, penaltyCards;
+
+		public Status(int player, List<Integer> deck0, List<Integer> deck1, GameStats stats) {
+			this.hands = stats.getHands();
+			this.cards = stats.getCardsPlayed();
+			this.penaltyCards = stats.getPenaltyCardsPlayed();
 			if (player == 0) {
 				this.deck0 = new ArrayList<>(deck0);
 				this.deck1 = new ArrayList<>(deck1);
@@ -61,42 +67,51 @@ public class Player {
 		public int hashCode() {
 			return Objects.hash(deck0, deck1);
 		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int c : deck0)
+				sb.append(c);
+			sb.append('-');
+			for (int c : deck1)
+				sb.append(c);
+			return sb.toString();
+		}
 	}
 
 	/**
-	 * Plays a game using given deck.
+	 * Describes the loop of an infinite game.
 	 * 
-	 * @param d
-	 * @return
+	 * @param history All statuses in the game so far, in the order they were
+	 *                reached.
+	 * @param first   First occurrence of the status that was reached again.
+	 * @param stats   Statistics for the game, when the status was reached again.
 	 */
-	public static GameStats play(Deck d) {
-		return play(d, null);
+	private static CycleInfo cycle(List<Status> history, Status first, GameStats stats) {
+		List<String> positions = new ArrayList<>(stats.getHands() - first.hands);
+		for (Status s : history.subList(first.hands, stats.getHands()))
+			positions.add(s.toString());
+		return new CycleInfo(first.hands, first.cards, stats.getHands() - first.hands,
+				stats.getCardsPlayed() - first.cards, stats.getPenaltyCardsPlayed() - first.penaltyCards, positions);
 	}
 
 	/**
 	 * Plays a game using given deck.
 	 * 
-	 * @param deck
-	 * @param out  If not null, prints game moves using this stream.
+	 * This is the fast code path, without any tracing of game events.
+	 * 
+	 * @param d
 	 * @return
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public static GameStats play(Deck d, PrintStream out) {
+	public static GameStats play(Deck d) {
 
 		GameStats stats = new GameStats(d);
 
 		// Check whether one player has only 0; in this case we skip, as we know longest
 		// game will be less than 40 cards
-		int i = 0;
-		for (; i < 20; ++i)
-			if (d.cards[i] != 0)
-				break;
-		if (i == 20)
-			return stats;
-		for (i = 20; i < 40; ++i)
-			if (d.cards[i] != 0)
-				break;
-		if (i == 40)
+		if (isUninteresting(d))
 			return stats;
 
 		List<Integer> cards = d.toList();
@@ -109,22 +124,99 @@ public class Player {
 		List<Integer> pile = new ArrayList<>(40);
 
 		// All configurations in the game so far; this is to detect infinite games
-		Set<Status> stati = new HashSet<>();
-		stati.add(new Status(player, deck[0], deck[1]));
+		Map<Status, Status> stati = new HashMap<>();
+		List<Status> history = new ArrayList<>();
+		Status start = new Status(player, deck[0], deck[1], stats);
+		stati.put(start, start);
+		history.add(start);
 
 		while (true) { // Game loop
 
-			try {
-				if (player == 0)
-					out.println(stats.getCardsPlayed() + ": " + player + " > " + deck[0] + " - " + deck[1] + " - " + pile);
-				else
-					out.println(stats.getCardsPlayed() + ": " + player + " > " + deck[1] + " - " + deck[0] + " - " + pile);
-			} catch (NullPointerException e) {
-				// Faster than checking stream
+			if (deck[player].size() == 0) {
+				stats.playerLost(player);
+				return stats;
+			}
+
+			// Play card
+			int played = (int) deck[player].remove(0);
+			pile.add(played);
+			stats.cardPlayed();
+
+			if (played != 0) { // Played a "penalty card"
+				penalty = played;
+				stats.penaltyCardPlayed();
+				player = ++player & 1;
+			} else { // Played normal card
+				if (penalty != 0) { // Player was responding to a penalty card
+					if (--penalty == 0) { // Player lost this hand
+						player = ++player & 1;
+						deck[player].addAll(pile);
+						pile.clear();
+						stats.handWon();
+
+						// Check if we were already in this configuration
+						Status status = new Status(player, deck[0], deck[1], stats);
+						Status first = stati.putIfAbsent(status, status);
+						if (first != null) {
+							stats.cycleFound(cycle(history, first, stats));
+							return stats;
+						}
+						history.add(status); // No, it is memorized now
+					}
+				} else { // Was not responding to a penalty
+					player = ++player & 1;
+				}
 			}
+		}
+	}
+
+	/**
+	 * Plays a game using given deck, notifying game events to a listener.
+	 * 
+	 * @param d
+	 * @param listener If not null, it is notified of game events; if null, this is
+	 *                 the same as {@link #play(Deck)}.
+	 * @return
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static GameStats play(Deck d, GameListener listener) {
+
+		if (listener == null)
+			return play(d);
+
+		GameStats stats = new GameStats(d);
+
+		if (isUninteresting(d)) {
+			listener.gameOver(stats);
+			return stats;
+		}
+
+		List<Integer> cards = d.toList();
+
+		int player = 0;
+		int penalty = 0;
+		List[] deck = new ArrayList[2];
+		deck[0] = new ArrayList<>(cards.subList(0, 20));
+		deck[1] = new ArrayList<>(cards.subList(20, 40));
+		List<Integer> pile = new ArrayList<>(40);
+		listener.gameStarted(d, Collections.unmodifiableList(deck[0]), Collections.unmodifiableList(deck[1]),
+				Collections.unmodifiableList(pile));
+
+		// All configurations in the game so far; this is to detect infinite games
+		Map<Status, Status> stati = new HashMap<>();
+		List<Status> history = new ArrayList<>();
+		Status start = new Status(player, deck[0], deck[1], stats);
+		stati.put(start, start);
+		history.add(start);
+		listener.positionRecorded(stats, player, false);
+
+		while (true) { // Game loop
+
+			listener.turnStarted(stats, player);
 
 			if (deck[player].size() == 0) {
 				stats.playerLost(player);
+				listener.gameOver(stats);
 				return stats;
 			}
 
@@ -136,29 +228,56 @@ public class Player {
 			if (played != 0) { // Played a "penalty card"
 				penalty = played;
 				stats.penaltyCardPlayed();
+				listener.cardPlayed(stats, player, played, penalty);
+				listener.penaltyCardPlayed(stats, player, played);
 				player = ++player & 1;
 			} else { // Played normal card
 				if (penalty != 0) { // Player was responding to a penalty card
 					if (--penalty == 0) { // Player lost this hand
+						listener.cardPlayed(stats, player, played, penalty);
 						player = ++player & 1;
+						int won = pile.size();
 						deck[player].addAll(pile);
 						pile.clear();
 						stats.handWon();
+						listener.handWon(stats, player, won);
 
 						// Check if we were already in this configuration
-						Status status = new Status(player, deck[0], deck[1]);
-						if (stati.contains(status)) {
-							stats.isInfinite(true);
+						Status status = new Status(player, deck[0], deck[1], stats);
+						Status first = stati.putIfAbsent(status, status);
+						if (first != null) {
+							listener.positionRecorded(stats, player, true);
+							stats.cycleFound(cycle(history, first, stats));
+							listener.gameOver(stats);
 							return stats;
-						} else {
-							// No, memorize this configuration
-							stati.add(status);
 						}
+						history.add(status); // No, it is memorized now
+						listener.positionRecorded(stats, player, false);
+					} else {
+						listener.cardPlayed(stats, player, played, penalty);
 					}
 				} else { // Was not responding to a penalty
+					listener.cardPlayed(stats, player, played, penalty);
 					player = ++player & 1;
 				}
 			}
 		}
 	}
+
+	/**
+	 * @return True if one player has only 0 in their hand; in this case the game
+	 *         is not played, as we know it will be shorter than 40 cards.
+	 */
+	private static boolean isUninteresting(Deck d) {
+		int i = 0;
+		for (; i < 20; ++i)
+			if (d.cards[i] != 0)
+				break;
+		if (i == 20)
+			return true;
+		for (i = 20; i < 40; ++i)
+			if (d.cards[i] != 0)
+				break;
+		return (i == 40);
+	}
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.Arrays;
+
+/**
+ * A set of game positions, each packed in a fixed number of longs, used by
+ * engines to detect infinite games. Positions are stored in primitive arrays,
+ * and the set can be cleared in constant time, so it can be reused for many
+ * games without allocating memory. The set remembers the order in which
+ * positions were added, so the loop of an infinite game can be rebuilt.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+final class PositionSet {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Longs in each position
+	private final int words;
+
+	private long[] keys;
+
+	// A slot is used if its stamp equals current generation
+	private int[] stamps;
+	private int generation = 1;
+
+	// index[slot] = order in which the position in the slot was added
+	private int[] index;
+
+	// slots[i] = slot of i-th position added
+	private int[] slots;
+
+	private int capacity;
+	private int size = 0;
+
+	/**
+	 * @param words Number of longs in each position.
+	 */
+	PositionSet(int words) {
+		this.words = words;
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		this.capacity = capacity;
+		keys = new long[capacity * words];
+		stamps = new int[capacity];
+		index = new int[capacity];
+		slots = new int[capacity];
+	}
+
+	/**
+	 * Removes all positions from the set.
+	 */
+	void clear() {
+		size = 0;
+		if (++generation == Integer.MAX_VALUE) {
+			generation = 1;
+			Arrays.fill(stamps, 0);
+		}
+	}
+
+	/**
+	 * @return Number of positions in the set.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a position to the set.
+	 * 
+	 * @param key The position.
+	 * @return -1 if the position was added, otherwise the order in which the
+	 *         position was added the first time (0 for the first position added).
+	 */
+	int add(long[] key) {
+		int slot = find(key, keys, stamps, capacity);
+		if (stamps[slot] == generation)
+			return index[slot];
+
+		stamps[slot] = generation;
+		System.arraycopy(key, 0, keys, slot * words, words);
+		index[slot] = size;
+		slots[size] = slot;
+		if (++size * 2 > capacity)
+			grow();
+		return -1;
+	}
+
+	/**
+	 * Copies a position in the set into given array.
+	 * 
+	 * @param i   Order in which the position was added.
+	 * @param key Where the position is copied.
+	 */
+	void get(int i, long[] key) {
+		System.arraycopy(keys, slots[i] * words, key, 0, words);
+	}
+
+	/**
+	 * @return The slot containing given key, or the empty slot where it should be
+	 *         put.
+	 */
+	private int find(long[] key, long[] keys, int[] stamps, int capacity) {
+		int mask = capacity - 1;
+		int slot = hash(key, 0) & mask;
+		while (stamps[slot] == generation) {
+			if (equals(key, 0, keys, slot * words))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int[] oldIndex = index;
+		int oldCapacity = capacity;
+		allocate(capacity * 2);
+
+		long[] key = new long[words];
+		for (int i = 0; i < oldCapacity; ++i) {
+			if (oldStamps[i] != generation)
+				continue;
+			System.arraycopy(oldKeys, i * words, key, 0, words);
+			int slot = find(key, keys, stamps, capacity);
+			stamps[slot] = generation;
+			System.arraycopy(key, 0, keys, slot * words, words);
+			index[slot] = oldIndex[i];
+			slots[oldIndex[i]] = slot;
+		}
+	}
+
+	private int hash(long[] a, int offset) {
+		long h = 0;
+		for (int i = 0; i < words; ++i) {
+			h = (h ^ a[offset + i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private boolean equals(long[] a, int offsetA, long[] b, int offsetB) {
+		for (int i = 0; i < words; ++i)
+			if (a[offsetA + i] != b[offsetB + i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return Number of longs needed to pack given number of bits.
+	 */
+	static int words(int bits) {
+		return (bits + 63) / 64;
+	}
+
+	/**
+	 * Reads a value packed in a position.
+	 * 
+	 * @param key    The position.
+	 * @param offset Bit where value is stored.
+	 * @param bits   Number of bits for the value.
+	 * @return The value.
+	 */
+	static int get(long[] key, int offset, int bits) {
+		int word = offset >>> 6;
+		int shift = offset & 63;
+		long value = key[word] >>> shift;
+		if (shift + bits > 64)
+			value |= key[word + 1] << (64 - shift);
+		return (int) (value & ((1L << bits) - 1));
+	}
+
+	/**
+	 * Packs a value in a position.
+	 * 
+	 * @param key    The position.
+	 * @param offset Bit where value is written.
+	 * @param value  Value to write; it must fit in given number of bits.
+	 * @param bits   Number of bits for the value.
+	 * @return Bit following the value.
+	 */
+	static int put(long[] key, int offset, long value, int bits) {
+		int word = offset >>> 6;
+		int shift = offset & 63;
+		key[word] |= value << shift;
+		if (shift + bits > 64)
+			key[word + 1] |= value >>> (64 - shift);
+		return offset + bits;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import io.github.mzattera.util.FileUtil;
+
+/**
+ * Keeps track of how much of the search space has been explored, the
+ * throughput of the executor and the estimated time to completion.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class ProgressTracker {
+
+	public static final String STATUS_FILE_NAME = "cavacamixa_status.txt";
+
+	/**
+	 * Weight of the last measure in the exponentially smoothed throughput.
+	 */
+	private static final double ALPHA = 0.2;
+
+	private final File statusFile;
+
+	private final long startTime = System.nanoTime();
+
+	// Size of the search space
+	private final long total;
+
+	// Uninteresting decks in the search space
+	private final long uninterestingTotal;
+
+	// Games played since start
+	private long games = 0;
+
+	// Uninteresting games (not played) since start
+	private long uninteresting = 0;
+
+	// Infinite games since start
+	private long infinite = 0;
+
+	// Cards played since start
+	private long cards = 0;
+
+	// Position in the search space
+	private long position = 0;
+
+	// Values at last update
+	private long lastGames = 0, lastCards = 0, lastTime;
+
+	private double gamesPerSecond = Double.NaN;
+	private double cardsPerSecond = Double.NaN;
+
+	// Last measured throughput versus smoothed one (1.0 = stable)
+	private double trend = 1.0;
+
+	/**
+	 *
+	 * @param saveFolder Folder where status file is written.
+	 * @param total      Size of the search space, -1 if unknown.
+	 */
+	public ProgressTracker(File saveFolder, long total) {
+		this(saveFolder, total, -1);
+	}
+
+	/**
+	 *
+	 * @param saveFolder         Folder where status file is written.
+	 * @param total              Size of the search space, -1 if unknown.
+	 * @param uninterestingTotal Number of uninteresting decks in the search space
+	 *                           (e.g. {@link Deck#UNINTERESTING_DECKS}), -1 if
+	 *                           unknown.
+	 */
+	public ProgressTracker(File saveFolder, long total, long uninterestingTotal) {
+		this.statusFile = new File(saveFolder, STATUS_FILE_NAME);
+		this.total = total;
+		this.uninterestingTotal = uninterestingTotal;
+		this.lastTime = System.nanoTime();
+	}
+
+	/**
+	 * Signals a game was played.
+	 *
+	 * @param result Game results.
+	 */
+	public synchronized void gamePlayed(GameResult result) {
+		games++;
+		if (result.isUninteresting())
+			uninteresting++;
+		if (result.isInfinite())
+			infinite++;
+		cards += result.getCardsPlayed();
+	}
+
+	/**
+	 * Updates throughput measures and saves them in the status file.
+	 *
+	 * @param position Number of decks in the search space that come before the
+	 *                 next deck to play, -1 if unknown.
+	 * @throws IOException
+	 */
+	public synchronized void update(long position) throws IOException {
+		this.position = position;
+
+		long now = System.nanoTime();
+		double seconds = (now - lastTime) / 1e9;
+		if (seconds > 0) {
+			double g = (games - lastGames) / seconds;
+			double c = (cards - lastCards) / seconds;
+			if (Double.isNaN(gamesPerSecond)) {
+				gamesPerSecond = g;
+				cardsPerSecond = c;
+			} else {
+				trend = (gamesPerSecond == 0) ? 1.0 : g / gamesPerSecond;
+				gamesPerSecond = ALPHA * g + (1 - ALPHA) * gamesPerSecond;
+				cardsPerSecond = ALPHA * c + (1 - ALPHA) * cardsPerSecond;
+			}
+			lastGames = games;
+			lastCards = cards;
+			lastTime = now;
+		}
+
+		FileUtil.writeFileAtomically(statusFile, toProperties());
+	}
+
+	/**
+	 * @return Fraction of the search space already explored, or NaN if the size
+	 *         of the search space is unknown.
+	 */
+	public synchronized double getFractionDone() {
+		if ((total < 0) || (position < 0))
+			return Double.NaN;
+		return (total == 0) ? 1.0 : (double) position / total;
+	}
+
+	/**
+	 * @return Estimated seconds to explore the rest of the search space, or -1 if
+	 *         it cannot be estimated yet.
+	 */
+	public synchronized long getEtaSeconds() {
+		if (Double.isNaN(gamesPerSecond) || (gamesPerSecond <= 0) || Double.isNaN(getFractionDone()))
+			return -1;
+		return (long) ((total - position) / gamesPerSecond);
+	}
+
+	/**
+	 * @return Number of games played since start.
+	 */
+	public synchronized long getGames() {
+		return games;
+	}
+
+	/**
+	 * @return A summary of games played since start, with average throughput.
+	 */
+	public synchronized String getSummary() {
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return String.format(Locale.ROOT,
+				"Played %d games (uninteresting=%d, infinite=%d), %d cards, in %.1f seconds: %.0f games/s, %.0f cards/s",
+				games, uninteresting, infinite, cards, seconds, games / Math.max(seconds, 1e-3),
+				cards / Math.max(seconds, 1e-3));
+	}
+
+	private String toProperties() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("timestamp=").append(System.currentTimeMillis()).append('\n');
+		sb.append("position=").append(position).append('\n');
+		sb.append("total=").append(total).append('\n');
+		sb.append("uninterestingTotal=").append(uninterestingTotal).append('\n');
+		sb.append("interestingTotal=").append(((total < 0) || (uninterestingTotal < 0)) ? -1 : total - uninterestingTotal)
+				.append('\n');
+		sb.append("fractionDone=").append(String.format(Locale.ROOT, "%.12f", getFractionDone())).append('\n');
+		sb.append("games=").append(games).append('\n');
+		sb.append("interestingGames=").append(games - uninteresting).append('\n');
+		sb.append("uninterestingGames=").append(uninteresting).append('\n');
+		sb.append("infiniteGames=").append(infinite).append('\n');
+		sb.append("cards=").append(cards).append('\n');
+		sb.append("gamesPerSecond=").append(String.format(Locale.ROOT, "%.1f", gamesPerSecond)).append('\n');
+		sb.append("cardsPerSecond=").append(String.format(Locale.ROOT, "%.1f", cardsPerSecond)).append('\n');
+		sb.append("trend=").append(String.format(Locale.ROOT, "%.3f", trend)).append('\n');
+		sb.append("etaSeconds=").append(getEtaSeconds()).append('\n');
+		return sb.toString();
+	}
+
+	@Override
+	public synchronized String toString() {
+		long eta = getEtaSeconds();
+		return String.format(Locale.ROOT,
+				"Progress: %.9f%% (%d of %d), games=%d (uninteresting=%d%s), %.0f games/s, %.0f cards/s, trend=%.2f, ETA=%s",
+				getFractionDone() * 100, position, total, games, uninteresting,
+				(uninterestingTotal < 0) ? "" : " of " + uninterestingTotal, gamesPerSecond, cardsPerSecond, trend,
+				(eta < 0) ? "n/a" : formatDuration(eta));
+	}
+
+	/**
+	 * @return Given duration, as days, hours, minutes and seconds (e.g.
+	 *         "2d 03h 04m 05s"); leading zero units are omitted.
+	 */
+	static String formatDuration(long seconds) {
+		long d = seconds / 86_400, h = (seconds / 3_600) % 24, m = (seconds / 60) % 60, s = seconds % 60;
+		if (d > 0)
+			return String.format(Locale.ROOT, "%dd %02dh %02dm %02ds", d, h, m, s);
+		if (h > 0)
+			return String.format(Locale.ROOT, "%dh %02dm %02ds", h, m, s);
+		if (m > 0)
+			return String.format(Locale.ROOT, "%dm %02ds", m, s);
+		return s + "s";
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.Arrays;
+
+/**
+ * Describes a variant of the game: the cards in the deck and the number of
+ * players.
+ *
+ * The deck contains a given number of cards for each "penalty value": 0 for
+ * normal cards, and 1 or more for penalty cards, where the value is the number
+ * of cards the next player has to play to respond. Cards are dealt in blocks:
+ * first cards in the deck go to player 0, next ones to player 1 and so on; if
+ * cards cannot be split evenly, first players get one card more.
+ *
+ * When a player fails to respond to a penalty card, the player who played the
+ * last penalty card wins the cards on the table and plays next. A player who
+ * has to play but has no cards is out of the game: if they were responding to
+ * a penalty card, the hand is won by the player who played it, otherwise the
+ * turn passes to next player. The game is over when only one player is left;
+ * with two players, this happens as soon as one player has to play and has no
+ * cards, as in {@link Player}.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public final class Rules {
+
+	/**
+	 * Italian "cavacamixa": 40 cards with four aces, 2s and 3s; two players.
+	 */
+	public static final Rules ITALIAN = new Rules("italian", 2, new int[] { 28, 4, 4, 4 });
+
+	/**
+	 * Standard "beggar-my-neighbour": 52 cards with four jacks, queens, kings and
+	 * aces (penalty 1, 2, 3 and 4 respectively); two players.
+	 */
+	public static final Rules BEGGAR_MY_NEIGHBOUR = new Rules("bmn", 2, new int[] { 36, 4, 4, 4, 4 });
+
+	private final String name;
+
+	private final int players;
+
+	// counts[v] = number of cards with penalty value v
+	private final int[] counts;
+
+	private final int deckSize;
+
+	/**
+	 *
+	 * @param name    Name of this variant.
+	 * @param players Number of players (2 or more).
+	 * @param counts  counts[v] is the number of cards in the deck with penalty
+	 *                value v (counts[0] being the number of normal cards).
+	 */
+	public Rules(String name, int players, int[] counts) {
+		if (players < 2)
+			throw new IllegalArgumentException("At least two players are needed.");
+		if ((counts.length < 2) || (counts.length > 10))
+			throw new IllegalArgumentException("Penalty values must be in range 1-9.");
+		int n = 0;
+		for (int c : counts) {
+			if (c < 0)
+				throw new IllegalArgumentException("Invalid number of cards: " + c);
+			n += c;
+		}
+		if (n < players)
+			throw new IllegalArgumentException("Not enough cards for " + players + " players.");
+		if (n > 255)
+			throw new IllegalArgumentException("Decks can have at most 255 cards.");
+
+		this.name = name;
+		this.players = players;
+		this.counts = counts.clone();
+		this.deckSize = n;
+	}
+
+	/**
+	 * Returns rules given their name. Names are "italian" or "bmn" (standard
+	 * beggar-my-neighbour), optionally followed by "/" and number of players
+	 * (e.g. "bmn/3"). Custom rules can be specified by listing number of cards for
+	 * each penalty value, starting from normal cards, separated by commas (e.g.
+	 * "36,4,4,4,4/2" is same as "bmn").
+	 *
+	 * @param name
+	 * @return Rules with given name.
+	 */
+	public static Rules forName(String name) {
+		String[] s = name.trim().toLowerCase().split("/");
+		if (s.length > 2)
+			throw new IllegalArgumentException("Invalid rules: " + name);
+
+		Rules base;
+		switch (s[0]) {
+		case "italian":
+			base = ITALIAN;
+			break;
+		case "bmn":
+			base = BEGGAR_MY_NEIGHBOUR;
+			break;
+		default:
+			String[] c = s[0].split(",");
+			int[] counts = new int[c.length];
+			try {
+				for (int i = 0; i < c.length; ++i)
+					counts[i] = Integer.parseInt(c[i].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid rules: " + name);
+			}
+			base = new Rules(s[0], 2, counts);
+		}
+
+		if (s.length == 1)
+			return base;
+		int players = Integer.parseInt(s[1]);
+		if (players == base.players)
+			return base;
+		return new Rules(s[0] + "/" + players, players, base.counts);
+	}
+
+	/**
+	 * @return Name of this variant.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Number of players.
+	 */
+	public int getPlayers() {
+		return players;
+	}
+
+	/**
+	 * @return Number of cards in the deck.
+	 */
+	public int getDeckSize() {
+		return deckSize;
+	}
+
+	/**
+	 * @return Highest penalty value of a card.
+	 */
+	public int getMaxPenalty() {
+		return counts.length - 1;
+	}
+
+	/**
+	 * @param value Penalty value (0 for normal cards).
+	 * @return Number of cards in the deck with given penalty value.
+	 */
+	public int getCount(int value) {
+		return counts[value];
+	}
+
+	/**
+	 * @param player
+	 * @return Number of cards dealt to given player.
+	 */
+	public int getHandSize(int player) {
+		return deckSize / players + ((player < deckSize % players) ? 1 : 0);
+	}
+
+	/**
+	 * @param player
+	 * @return Position in the deck of the first card dealt to given player.
+	 */
+	public int getHandStart(int player) {
+		return player * (deckSize / players) + Math.min(player, deckSize % players);
+	}
+
+	/**
+	 * @return Number of distinct decks.
+	 * @throws ArithmeticException If the number of decks does not fit in a long.
+	 */
+	public long getTotalDecks() {
+		return Deck.multinomial(counts);
+	}
+
+	/**
+	 * @return The first deck in the sequence of all possible decks, with all cards
+	 *         sorted by penalty value.
+	 */
+	public Deck getInitialDeck() {
+		int[] cards = new int[deckSize];
+		int index = 0;
+		for (int v = 0; v < counts.length; ++v)
+			for (int i = 0; i < counts[v]; ++i)
+				cards[index++] = v;
+		return new Deck(cards);
+	}
+
+	/**
+	 * @return True if given deck can be used with these rules.
+	 */
+	public boolean accepts(Deck deck) {
+		if (deck.cards.length != deckSize)
+			return false;
+		int[] c = new int[counts.length];
+		for (int card : deck.cards) {
+			if ((card < 0) || (card >= c.length))
+				return false;
+			c[card]++;
+		}
+		return Arrays.equals(c, counts);
+	}
+
+	/**
+	 * Creates an engine specialized for these rules. Engines are not thread-safe;
+	 * each thread must compile its own engine.
+	 *
+	 * @return An engine playing games with these rules.
+	 */
+	public Engine compile() {
+		if (players == 2)
+			return new TwoPlayerEngine(this);
+		return new MultiPlayerEngine(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Rules))
+			return false;
+		Rules other = (Rules) obj;
+		return (players == other.players) && Arrays.equals(counts, other.counts);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(counts) * 31 + players;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
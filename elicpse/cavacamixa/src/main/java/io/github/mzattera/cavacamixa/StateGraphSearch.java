@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.io.PrintStream;
+
+/**
+ * Plays a range of decks with a {@link GraphEngine}, building the graph of
+ * positions reached at the start of each game and each time a hand is won,
+ * then queries it: the longest game in the range is the start position with
+ * the longest remaining game, and the graph also tells which positions are in
+ * loops and the longest game from any position reached.
+ *
+ * Games are played in a single thread, so that all of them share the same
+ * graph.
+ *
+ * @author Massimiliano "Maxi" Zattera
+ */
+public class StateGraphSearch {
+
+	private final Rules rules;
+
+	private final GraphEngine engine;
+
+	private final GameResult result = new GameResult();
+
+	private long games = 0, infinite = 0, hands = 0;
+
+	// Longest non-infinite game in the range
+	private Deck longestDeck = null;
+	private int longestCards = -1;
+
+	/**
+	 * @param rules        Rules for the games; they must be for two players.
+	 * @param maxPositions Maximum number of positions in the graph; when the graph
+	 *                     grows larger, it is cleared.
+	 */
+	public StateGraphSearch(Rules rules, int maxPositions) {
+		this.rules = rules;
+		this.engine = new GraphEngine(rules, maxPositions);
+	}
+
+	/**
+	 * Plays all decks in given range.
+	 */
+	public void run(DeckSpace space) {
+		space.stream().forEach(this::play);
+	}
+
+	private void play(Deck deck) {
+		engine.play(deck, result);
+		int p = engine.getStart();
+		if (p < 0)
+			return;
+		games++;
+		hands += result.getHands();
+		if (engine.isInfinite(p)) {
+			infinite++;
+		} else if (engine.getRemainingCards(p) > longestCards) {
+			longestCards = engine.getRemainingCards(p);
+			longestDeck = new Deck(deck);
+		}
+	}
+
+	/**
+	 * @return Statistics of the longest non-infinite game played, or null if no
+	 *         such games were played.
+	 */
+	public GameStats getLongestGame() {
+		return (longestDeck == null) ? null : rules.compile().play(longestDeck);
+	}
+
+	/**
+	 * Prints results of the search.
+	 */
+	public void print(PrintStream out) {
+		out.println("Played " + games + " games (infinite=" + infinite + ").");
+		out.println("Longest game: " + getLongestGame());
+		if (games > 0)
+			out.println(String.format("Hands played: %d (%.2f per game), hands in games: %d (%.2f per game).",
+					engine.getHandsPlayed(), (double) engine.getHandsPlayed() / games, hands,
+					(double) hands / games));
+
+		int cycle = 0, longest = -1;
+		for (int p = 0; p < engine.size(); ++p) {
+			if (engine.isOnCycle(p))
+				cycle++;
+			else if (!engine.isInfinite(p) && ((longest < 0) || (engine.getRemainingCards(p) > engine
+					.getRemainingCards(longest))))
+				longest = p;
+		}
+		out.println("Graph: " + engine.size() + " positions, " + cycle + " in loops"
+				+ ((engine.getClears() == 0) ? "" : " (cleared " + engine.getClears() + " times)") + ".");
+		if (longest >= 0)
+			out.println("Longest game from a position in the graph: " + engine.getRemainingCards(longest)
+					+ " cards, " + engine.getRemainingHands(longest) + " hands, from " + engine.toString(longest));
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2025 Massimiliano "Maxi" Zattera
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.mzattera.cavacamixa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Engine for two players, for any deck; with Italian rules it plays exactly as
+ * {@link Player}. Hands are kept in ring buffers and positions in a
+ * {@link PositionSet}, which are reused across games, so playing a game does
+ * not allocate memory, besides returned statistics (see
+ * {@link #play(Deck, GameResult)}).
+ * 
+ * This is not thread-safe.
+ * 
+ * @author Massimiliano "Maxi" Zattera
+ */
+final class TwoPlayerEngine implements Engine {
+
+	private final int deckSize;
+
+	// Cards dealt to player 0
+	private final int handSize;
+
+	// Bits needed to store a card
+	private final int cardBits;
+
+	// Ring buffers for the two hands
+	private final int mask;
+	private final int[][] hand;
+	private final int[] head = new int[2];
+	private final int[] len = new int[2];
+
+	private final int[] pile;
+
+	private final PositionSet positions;
+	private final long[] key;
+
+	private final GameResult result = new GameResult();
+
+	// Cards and penalty cards played when each position was recorded
+	private int[] cardsAt = new int[1024], penaltiesAt = new int[1024];
+
+	TwoPlayerEngine(Rules rules) {
+		if (rules.getPlayers() != 2)
+			throw new IllegalArgumentException("Rules must be for two players.");
+		deckSize = rules.getDeckSize();
+		handSize = rules.getHandSize(0);
+		cardBits = 32 - Integer.numberOfLeadingZeros(rules.getMaxPenalty());
+
+		int capacity = Integer.highestOneBit(deckSize) << 1;
+		mask = capacity - 1;
+		hand = new int[2][capacity];
+		pile = new int[deckSize];
+
+		key = new long[PositionSet.words(8 + deckSize * cardBits)];
+		positions = new PositionSet(key.length);
+	}
+
+	@Override
+	public GameStats play(Deck d) {
+		play(d, result);
+		return result.toStats(d);
+	}
+
+	@Override
+	public void play(Deck d, GameResult result) {
+		int[] cards = d.cards;
+
+		// Check whether one player has only 0; in this case we skip, as we know the
+		// game will be shorter than the deck
+		int i = 0;
+		for (; i < handSize; ++i)
+			if (cards[i] != 0)
+				break;
+		if (i == handSize) {
+			result.uninteresting();
+			return;
+		}
+		for (i = handSize; i < deckSize; ++i)
+			if (cards[i] != 0)
+				break;
+		if (i == deckSize) {
+			result.uninteresting();
+			return;
+		}
+
+		System.arraycopy(cards, 0, hand[0], 0, handSize);
+		System.arraycopy(cards, handSize, hand[1], 0, deckSize - handSize);
+		head[0] = head[1] = 0;
+		len[0] = handSize;
+		len[1] = deckSize - handSize;
+
+		int player = 0;
+		int penalty = 0;
+		int pileSize = 0;
+		int cardsPlayed = 0, penaltyCardsPlayed = 0, hands = 0;
+
+		positions.clear();
+		record(player, 0, 0, 0);
+
+		while (true) { // Game loop
+
+			if (len[player] == 0) {
+				result.set(cardsPlayed, penaltyCardsPlayed, hands, player, -1, null);
+				return;
+			}
+
+			// Play card
+			int[] h = hand[player];
+			int played = h[head[player]];
+			head[player] = (head[player] + 1) & mask;
+			len[player]--;
+			pile[pileSize++] = played;
+			cardsPlayed++;
+
+			if (played != 0) { // Played a "penalty card"
+				penalty = played;
+				penaltyCardsPlayed++;
+				player ^= 1;
+			} else if (penalty != 0) { // Player was responding to a penalty card
+				if (--penalty == 0) { // Player lost this hand
+					player ^= 1;
+					h = hand[player];
+					int tail = head[player] + len[player];
+					for (int j = 0; j < pileSize; ++j)
+						h[(tail + j) & mask] = pile[j];
+					len[player] += pileSize;
+					pileSize = 0;
+					hands++;
+
+					int first = record(player, hands, cardsPlayed, penaltyCardsPlayed);
+					if (first >= 0) {
+						result.set(cardsPlayed, penaltyCardsPlayed, hands, 0, -1,
+								cycle(first, hands, cardsPlayed, penaltyCardsPlayed));
+						return;
+					}
+				}
+			} else { // Was not responding to a penalty
+				player ^= 1;
+			}
+		}
+	}
+
+	/**
+	 * Records current position, seen from the player to move.
+	 * 
+	 * @return -1 if the position is new, otherwise the number of hands won when
+	 *         the position was first recorded.
+	 */
+	private int record(int player, int hands, int cards, int penalties) {
+		for (int i = 0; i < key.length; ++i)
+			key[i] = 0;
+		int offset = PositionSet.put(key, 0, len[player], 8);
+		offset = put(player, offset);
+		put(player ^ 1, offset);
+		int first = positions.add(key);
+		if (first < 0) {
+			if (hands == cardsAt.length) {
+				cardsAt = Arrays.copyOf(cardsAt, hands * 2);
+				penaltiesAt = Arrays.copyOf(penaltiesAt, hands * 2);
+			}
+			cardsAt[hands] = cards;
+			penaltiesAt[hands] = penalties;
+		}
+		return first;
+	}
+
+	/**
+	 * Describes the loop of an infinite game, from recorded positions.
+	 * 
+	 * @param first Hands won when the repeated position was first recorded.
+	 */
+	private CycleInfo cycle(int first, int hands, int cards, int penalties) {
+		List<String> p = new ArrayList<>(hands - first);
+		StringBuilder sb = new StringBuilder();
+		for (int h = first; h < hands; ++h) {
+			positions.get(h, key);
+			p.add(toString(key, deckSize, cardBits, sb));
+		}
+		return new CycleInfo(first, cardsAt[first], hands - first, cards - cardsAt[first],
+				penalties - penaltiesAt[first], p);
+	}
+
+	/**
+	 * @param key A position, as packed by this engine.
+	 * @param sb  Buffer used to build the string.
+	 * @return The position as cards of the player to move, a dash, and cards of
+	 *         the other player.
+	 */
+	static String toString(long[] key, int deckSize, int cardBits, StringBuilder sb) {
+		int moverCards = PositionSet.get(key, 0, 8);
+		sb.setLength(0);
+		for (int i = 0, offset = 8; i < deckSize; ++i, offset += cardBits) {
+			if (i == moverCards)
+				sb.append('-');
+			sb.append(PositionSet.get(key, offset, cardBits));
+		}
+		if (moverCards == deckSize)
+			sb.append('-');
+		return sb.toString();
+	}
+
+	private int put(int player, int offset) {
+		int[] h = hand[player];
+		for (int i = 0, j = head[player]; i < len[player]; ++i, j = (j + 1) & mask)
+			offset = PositionSet.put(key, offset, h[j], cardBits);
+		return offset;
+	}
+}
@@ -24,9 +24,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Utility class for handling files.
@@ -111,4 +116,42 @@ public final class FileUtil {
 			writer.flush();
 		}
 	}
+
+	/**
+	 * Write text to given file, in UTF-8 encoding, in a crash-safe way.
+	 * 
+	 * Text is first written to a temporary file in the same folder, which is
+	 * synced to disk and then renamed over the target file; therefore, the target
+	 * file contains either its old content or the new one, never a partially
+	 * written text.
+	 * 
+	 * @param file
+	 * @param text
+	 * @throws IOException
+	 */
+	public static void writeFileAtomically(File file, String text) throws IOException {
+		Path target = file.toPath().toAbsolutePath();
+		Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+			while (buf.hasRemaining())
+				ch.write(buf);
+			ch.force(true);
+		}
+
+		try {
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		// Makes the rename durable too; not all platforms allow opening a folder
+		try (FileChannel dir = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+			dir.force(true);
+		} catch (IOException e) {
+			// Best effort
+		}
+	}
 }